@@ -0,0 +1,170 @@
+package client;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ArchivePipeline helper object.
+ *
+ * <P>
+ * Takes archiving off the critical path of a test case. Once the service is
+ * stopped its output is snapshotted by hard linking every file into a folder
+ * next to the original, which takes moments and survives the next case
+ * cleaning the original folders. SQLite databases and their journal and WAL
+ * files are copied instead, as the row's own SQL action and the rows after it
+ * keep writing to the live database, which would reach a linked snapshot
+ * through the shared file. The copy or compression into the archive then
+ * runs from the snapshot on a few worker threads while the next case proceeds,
+ * and the snapshot is reaped afterwards. The queue is bounded: when it is full
+ * the test thread archives the snapshot itself instead of piling up more.
+ *
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class ArchivePipeline {
+	private static ThreadPoolExecutor workers;
+	private static final AtomicInteger archived = new AtomicInteger();
+	private static final Map<String, Exception> failures = new ConcurrentHashMap<String, Exception>();
+
+	private ArchivePipeline() {
+	}
+
+	/**
+	 * Work done on a snapshot by a worker.
+	 */
+	interface SnapshotArchiver {
+		/**
+		 * @param snapshotPaths the snapshot of each path, in the order given to
+		 *                      submit, missing paths left out
+		 */
+		void archive(String[] snapshotPaths) throws IOException, InterruptedException;
+	}
+
+	/**
+	 * Snapshots paths and queues them to be archived.
+	 *
+	 * @param archiveDest    name of the archive, used in reports
+	 * @param pathsToArchive folders or files to snapshot, missing ones are skipped
+	 * @param threads        number of archive workers, fixed by the first call
+	 * @param maxPending     number of snapshots that may wait for a worker, fixed
+	 *                       by the first call
+	 * @param archiver       archives the snapshot
+	 * @throws IOException if the snapshot could not be taken
+	 */
+	public static void submit(String archiveDest, String[] pathsToArchive, int threads, int maxPending,
+			SnapshotArchiver archiver) throws IOException {
+		ArrayList<Path> snapshots = new ArrayList<Path>();
+		try {
+			for (String path : pathsToArchive) {
+				if (path != null && new File(path).exists()) {
+					snapshots.add(snapshot(new File(path).toPath().toAbsolutePath().normalize()));
+				}
+			}
+		} catch (IOException e) {
+			reapAll(snapshots);
+			throw e;
+		}
+		String[] snapshotPaths = new String[snapshots.size()];
+		for (int i = 0; i < snapshotPaths.length; i++) {
+			snapshotPaths[i] = snapshots.get(i).toString();
+		}
+		workers(threads, maxPending).execute(() -> {
+			try {
+				archiver.archive(snapshotPaths);
+				archived.incrementAndGet();
+			} catch (IOException | InterruptedException | RuntimeException e) {
+				failures.put(archiveDest, e);
+			} finally {
+				reapAll(snapshots);
+			}
+		});
+	}
+
+	/**
+	 * Waits for every queued archive and prints the ones that failed. Called once
+	 * at the end of the suite, before the FolderReaper is awaited.
+	 *
+	 * @throws InterruptedException
+	 */
+	public static void awaitAndReport() throws InterruptedException {
+		synchronized (ArchivePipeline.class) {
+			if (workers == null) {
+				return;
+			}
+			workers.shutdown();
+		}
+		if (!workers.awaitTermination(1, TimeUnit.HOURS)) {
+			System.out.println("Archive pipeline still archiving after an hour, giving up on waiting.");
+		}
+		System.out.println("Archive pipeline archived " + archived + " test case(s), " + failures.size()
+				+ " failure(s).");
+		for (Map.Entry<String, Exception> failure : failures.entrySet()) {
+			System.out.println("ERROR! Could not archive... " + failure.getKey() + ": " + failure.getValue());
+		}
+	}
+
+	private static synchronized ThreadPoolExecutor workers(int threads, int maxPending) {
+		if (workers == null) {
+			AtomicInteger count = new AtomicInteger();
+			workers = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 0, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<Runnable>(Math.max(1, maxPending)), runnable -> {
+						Thread thread = new Thread(runnable, "archive-worker-" + count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}, new ThreadPoolExecutor.CallerRunsPolicy());
+		}
+		return workers;
+	}
+
+	/**
+	 * Hard links a folder's files, or a single file, into a new folder next to
+	 * it, copying databases and the files that cannot be linked.
+	 *
+	 * @return the snapshot folder, holding what the archive should hold for path
+	 */
+	private static Path snapshot(Path path) throws IOException {
+		Path snapshot = path.resolveSibling("." + path.getFileName() + ".snapshot-" + System.nanoTime());
+		CopySummary summary = FixtureCopier.copy(path, snapshot, FixtureCopier.Mode.LINK, true, 1,
+				(file, target) -> {
+					if (!isDatabaseFile(file)) {
+						return false;
+					}
+					FixtureCopier.transferCopy(file, target, true);
+					return true;
+				});
+		if (summary.getCopiedFiles() > 0) {
+			System.out.println("     Snapshot of " + path + " could not link every file: " + summary);
+		}
+		summary.throwIfFailed();
+		return snapshot;
+	}
+
+	/**
+	 * @return true if the file is a SQLite database or one of its journal, WAL
+	 *         or shared memory files
+	 */
+	private static boolean isDatabaseFile(Path file) {
+		return file.getFileName().toString().toLowerCase().matches(".*\\.(sqlite|db)(-journal|-wal|-shm)?");
+	}
+
+	private static void reapAll(ArrayList<Path> snapshots) {
+		for (Path snapshot : snapshots) {
+			try {
+				if (Files.exists(snapshot)) {
+					FolderReaper.reap(snapshot);
+				}
+			} catch (IOException e) {
+				System.out.println("     Could not reap snapshot... " + snapshot + ": " + e);
+			}
+		}
+	}
+}
@@ -0,0 +1,268 @@
+package client;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ArchiveStore helper object.
+ *
+ * <P>
+ * Archives test case folders by content instead of copying them. Every file is
+ * hashed with SHA-256 and its content is kept once, gzip compressed, in a blob
+ * store shared by all test cases; a file whose content is already there costs
+ * nothing but a manifest line. Each test case gets a small text manifest of
+ * hash, size, modified date and relative path per file, from which the
+ * archived folder can be restored on demand:
+ *
+ * <pre>
+ * java client.ArchiveStore restore &lt;manifest&gt; [target folder] [blob store]
+ * </pre>
+ *
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class ArchiveStore {
+	public static final String MANIFEST_NAME = "archive.manifest";
+	private static final String HEADER = "# archive manifest v1", STORE_PREFIX = "# store ";
+	private static final int BUFFER_SIZE = 1 << 16;
+	private final Path storeRoot;
+
+	/**
+	 * Constructor
+	 *
+	 * @param storeRoot folder holding the blobs, created when first needed
+	 */
+	public ArchiveStore(Path storeRoot) {
+		this.storeRoot = storeRoot.toAbsolutePath().normalize();
+	}
+
+	/**
+	 * Archives folders or files into the store and writes the manifest of the
+	 * test case. Folders are recorded by their contents and files by their name,
+	 * the same layout a folder copy into the archive folder would give.
+	 *
+	 * @param pathsToArchive folders or files to archive, missing ones are skipped
+	 * @param manifestPath   where the manifest is written
+	 * @param parallelism    number of files hashed and compressed at once
+	 * @return totals of the run
+	 * @throws IOException if a source could not be walked or the manifest could
+	 *                     not be written
+	 */
+	public ArchiveSummary archive(String[] pathsToArchive, Path manifestPath, int parallelism) throws IOException {
+		ArchiveSummary summary = new ArchiveSummary();
+		List<Path> files = new ArrayList<Path>();
+		List<Path> roots = new ArrayList<Path>();
+		HashMap<Path, Integer> indexes = new HashMap<Path, Integer>();
+		for (String path : pathsToArchive) {
+			Path source = Paths.get(path).toAbsolutePath().normalize();
+			if (!Files.exists(source)) {
+				continue;
+			}
+			Path root = Files.isDirectory(source) ? source : source.getParent();
+			try (Stream<Path> paths = Files.walk(source)) {
+				for (Path file : (Iterable<Path>) paths::iterator) {
+					if (Files.isRegularFile(file) && !indexes.containsKey(file)) {
+						indexes.put(file, files.size());
+						files.add(file);
+						roots.add(root);
+					}
+				}
+			}
+		}
+		String[] lines = new String[files.size()];
+		FixtureCopier.runAll(files, parallelism, summary::addFailure, file -> {
+			int index = indexes.get(file);
+			String relativePath = roots.get(index).relativize(file).toString().replace('\\', '/');
+			long modified = Files.getLastModifiedTime(file).toMillis();
+			lines[index] = put(file, summary) + "\t" + Files.size(file) + "\t" + modified + "\t" + relativePath;
+		});
+		Files.createDirectories(manifestPath.toAbsolutePath().getParent());
+		try (BufferedWriter out = Files.newBufferedWriter(manifestPath, StandardCharsets.UTF_8)) {
+			out.write(HEADER);
+			out.newLine();
+			out.write(STORE_PREFIX + relativeStorePath(manifestPath));
+			out.newLine();
+			for (String line : lines) {
+				if (line != null) {
+					out.write(line);
+					out.newLine();
+				}
+			}
+		}
+		summary.finish();
+		return summary;
+	}
+
+	/**
+	 * Rebuilds an archived folder from its manifest, checking every file against
+	 * its hash.
+	 *
+	 * @param manifestPath the manifest of the test case
+	 * @param target       folder the files are restored into
+	 * @return number of files restored
+	 * @throws IOException if a blob is missing, corrupt or could not be written
+	 */
+	public int restore(Path manifestPath, Path target) throws IOException {
+		int restored = 0;
+		for (String line : Files.readAllLines(manifestPath, StandardCharsets.UTF_8)) {
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] fields = line.split("\t", 4);
+			Path file = target.resolve(fields[3]);
+			Files.createDirectories(file.toAbsolutePath().getParent());
+			MessageDigest digest = sha256();
+			try (InputStream in = new DigestInputStream(
+					new GZIPInputStream(Files.newInputStream(blobPath(fields[0])), BUFFER_SIZE), digest)) {
+				Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+			if (!toHex(digest.digest()).equals(fields[0])) {
+				throw new IOException("Blob " + fields[0] + " is corrupt, could not restore... " + file);
+			}
+			Files.setLastModifiedTime(file, FileTime.fromMillis(Long.parseLong(fields[2])));
+			restored++;
+		}
+		return restored;
+	}
+
+	/**
+	 * Adds a file's content to the store unless it is already there. The file is
+	 * hashed first, so content already stored is never compressed again. New
+	 * content is hashed a second time while it is compressed into a temp file,
+	 * and the blob is named by that hash, so it always matches exactly the
+	 * content it holds even if the file changed in between.
+	 *
+	 * @return the SHA-256 hash of the content
+	 */
+	private String put(Path file, ArchiveSummary summary) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		MessageDigest digest = sha256();
+		long size = 0;
+		try (InputStream in = Files.newInputStream(file)) {
+			for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+				digest.update(buffer, 0, read);
+				size += read;
+			}
+		}
+		String hash = toHex(digest.digest());
+		if (Files.exists(blobPath(hash))) {
+			summary.addFile(size);
+			return hash;
+		}
+		Files.createDirectories(storeRoot);
+		Path tempPath = Files.createTempFile(storeRoot, "put-", ".tmp");
+		try {
+			size = 0;
+			try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest);
+					OutputStream out = new GZIPOutputStream(Files.newOutputStream(tempPath), BUFFER_SIZE)) {
+				for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+					out.write(buffer, 0, read);
+					size += read;
+				}
+			}
+			hash = toHex(digest.digest());
+			Path blob = blobPath(hash);
+			Files.createDirectories(blob.getParent());
+			long storedSize = Files.size(tempPath);
+			try {
+				Files.move(tempPath, blob); // same store, so a rename
+				summary.addNewFile(size, storedSize);
+			} catch (FileAlreadyExistsException e) { // another worker stored the same content first
+				summary.addFile(size);
+			}
+			return hash;
+		} finally {
+			Files.deleteIfExists(tempPath);
+		}
+	}
+
+	/**
+	 * @return where the blob of a hash is kept, fanned out over 256 folders
+	 */
+	private Path blobPath(String hash) {
+		return storeRoot.resolve(hash.substring(0, 2)).resolve(hash + ".gz");
+	}
+
+	/**
+	 * @return the store path relative to the manifest, so a TestArchive folder
+	 *         can be moved as a whole
+	 */
+	private String relativeStorePath(Path manifestPath) {
+		Path manifestFolder = manifestPath.toAbsolutePath().normalize().getParent();
+		try {
+			return manifestFolder.relativize(storeRoot).toString().replace('\\', '/');
+		} catch (IllegalArgumentException e) { // other drive
+			return storeRoot.toString();
+		}
+	}
+
+	/**
+	 * @return the store a manifest was written against
+	 */
+	static Path storeOf(Path manifestPath) throws IOException {
+		try (BufferedReader in = Files.newBufferedReader(manifestPath, StandardCharsets.UTF_8)) {
+			if (!HEADER.equals(in.readLine())) {
+				throw new IOException("Not an archive manifest... " + manifestPath);
+			}
+			String store = in.readLine();
+			if (store == null || !store.startsWith(STORE_PREFIX)) {
+				throw new IOException("Archive manifest names no blob store... " + manifestPath);
+			}
+			return manifestPath.toAbsolutePath().getParent().resolve(store.substring(STORE_PREFIX.length()));
+		}
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) { // every JVM has SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		char[] hex = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			hex[i * 2] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+			hex[i * 2 + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+		}
+		return new String(hex);
+	}
+
+	/**
+	 * Restores an archived test case folder.
+	 *
+	 * @param args restore &lt;manifest&gt; [target folder] [blob store]
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2 || !"restore".equals(args[0])) {
+			System.out.println("Usage: java client.ArchiveStore restore <manifest> [target folder] [blob store]");
+			return;
+		}
+		Path manifestPath = Paths.get(args[1]);
+		Path target = args.length > 2 ? Paths.get(args[2]) : manifestPath.toAbsolutePath().getParent();
+		Path store = args.length > 3 ? Paths.get(args[3]) : storeOf(manifestPath);
+		int restored = new ArchiveStore(store).restore(manifestPath, target);
+		System.out.println("Restored " + restored + " file(s) to... " + target);
+	}
+}
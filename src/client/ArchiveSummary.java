@@ -0,0 +1,79 @@
+package client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ArchiveSummary data model object.
+ *
+ * <P>
+ * Totals of archiving a test case into the ArchiveStore: files and bytes
+ * archived, how many of them were new content, the compressed size of that new
+ * content and the disk space saved compared to copying the folders. Failures
+ * and timing are kept by RunSummary.
+ *
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class ArchiveSummary extends RunSummary {
+	private final AtomicInteger files = new AtomicInteger();
+	private final AtomicLong bytes = new AtomicLong();
+	private final AtomicInteger newBlobs = new AtomicInteger();
+	private final AtomicLong storedBytes = new AtomicLong();
+
+	public ArchiveSummary() {
+		super("archive", "archived");
+	}
+
+	/**
+	 * Records an archived file whose content was already in the store.
+	 *
+	 * @param size bytes of the file
+	 */
+	void addFile(long size) {
+		files.incrementAndGet();
+		bytes.addAndGet(size);
+	}
+
+	/**
+	 * Records an archived file whose content was added to the store.
+	 *
+	 * @param size       bytes of the file
+	 * @param storedSize bytes of its compressed blob
+	 */
+	void addNewFile(long size, long storedSize) {
+		addFile(size);
+		newBlobs.incrementAndGet();
+		storedBytes.addAndGet(storedSize);
+	}
+
+	public int getFiles() {
+		return files.get();
+	}
+
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	public int getNewBlobs() {
+		return newBlobs.get();
+	}
+
+	public long getStoredBytes() {
+		return storedBytes.get();
+	}
+
+	/**
+	 * @return bytes a folder copy would have used that the store did not
+	 */
+	public long getSavedBytes() {
+		return bytes.get() - storedBytes.get();
+	}
+
+	@Override
+	public String toString() {
+		String text = "Archived " + files + " file(s), " + bytes + " bytes; " + newBlobs + " new blob(s), "
+				+ storedBytes + " bytes stored; saved " + getSavedBytes() + " bytes; " + getElapsedMillis() + " ms";
+		return text + failureText();
+	}
+}
@@ -0,0 +1,180 @@
+package client;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AssertionBatcher helper object.
+ *
+ * <P>
+ * Folds consecutive SELECT rows that only assert a count, on the same table of
+ * the same database, into one query that counts for all of them in a single
+ * scan:
+ *
+ * <pre>
+ * SELECT SUM(CASE WHEN a = ? THEN 1 ELSE 0 END), SUM(CASE WHEN b = ? THEN 1 ELSE 0 END)
+ * FROM t WHERE (a = ?) OR (b = ?)
+ * </pre>
+ *
+ * The query runs when the first row of the batch runs, so after any Project run
+ * that row performs, and every row of the batch then asserts its own count as
+ * before. A batch never spans a row planned to run Project or any row other
+ * than a count-only SELECT, so nothing can change the table between the query
+ * and the last row that uses it. A follower that runs Project itself because
+ * its leader's run did not complete counts on its own instead. The
+ * "disableassertionbatching" test data key turns batching off.
+ *
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class AssertionBatcher {
+	/**
+	 * Bound parameters per query, under the 999 older SQLite builds allow.
+	 */
+	private static final int MAX_PARAMETERS = 990;
+
+	private AssertionBatcher() {
+	}
+
+	/**
+	 * Assigns consecutive count-only SELECT rows on the same table their batch.
+	 * Called after the ScenarioPlanner, as the batches follow its leaders.
+	 *
+	 * @param tests the rows of a test factory, in run order
+	 * @return the number of rows that share a query with another row
+	 */
+	public static int plan(List<? extends OperationTest> tests) {
+		ArrayList<CountBatch> batches = new ArrayList<CountBatch>();
+		CountBatch batch = null;
+		for (OperationTest test : tests) {
+			test.countBatch = null;
+			String key = test.getCountBatchKey();
+			if (key == null) {
+				batch = null;
+				continue;
+			}
+			boolean runsProject = !test.isScenarioFollower() && test.getScenarioKey() != null;
+			if (batch == null || !key.equals(batch.key) || runsProject) {
+				batch = new CountBatch(key);
+				batches.add(batch);
+			}
+			batch.members.add(test);
+		}
+		int folded = 0, queries = 0;
+		for (CountBatch planned : batches) {
+			if (planned.members.size() > 1) {
+				for (OperationTest member : planned.members) {
+					member.countBatch = planned;
+				}
+				folded += planned.members.size();
+				queries++;
+			}
+		}
+		if (folded > 0) {
+			System.out.println("Folded " + folded + " SELECT count assertion(s) into " + queries + " batch(es).");
+		}
+		return folded;
+	}
+
+	/**
+	 * The count-only SELECT rows that are counted by one query.
+	 */
+	static class CountBatch {
+		private final String key;
+		private final ArrayList<OperationTest> members = new ArrayList<OperationTest>();
+		private long[] counts;
+
+		private CountBatch(String key) {
+			this.key = key;
+		}
+
+		/**
+		 * Counts the rows of every member, the first time a member asks.
+		 *
+		 * @param member       the row asking for its count
+		 * @param connection   the asking row's connection
+		 * @param databaseType mysql or sqlite
+		 * @return the number of rows matching the member's columns
+		 * @throws SQLException
+		 */
+		synchronized long count(OperationTest member, Connection connection, String databaseType)
+				throws SQLException {
+			if (counts == null) {
+				long started = System.nanoTime();
+				long[] results = new long[members.size()];
+				int queries = 0;
+				for (int first = 0; first < members.size(); queries++) {
+					first = countFrom(member, first, results, connection, databaseType);
+				}
+				counts = results;
+				System.out.println("Counted " + members.size() + " assertion(s) on " + member.getTableName() + " in "
+						+ queries + " query(ies), " + (System.nanoTime() - started) / 1000000 + " ms");
+			}
+			return counts[members.indexOf(member)];
+		}
+
+		/**
+		 * Counts as many members as fit in one query, starting at first.
+		 *
+		 * @param asking the member whose connection runs the query
+		 * @return the index of the first member not counted
+		 */
+		private int countFrom(OperationTest asking, int first, long[] results, Connection connection,
+				String databaseType) throws SQLException {
+			ArrayList<SqlTemplate> templates = new ArrayList<SqlTemplate>();
+			int parameters = 0, end = first;
+			boolean everyRow = false;
+			for (; end < members.size(); end++) {
+				SqlTemplate template = members.get(end).countTemplate(databaseType);
+				int needed = 2 * template.getParameterCount(); // once in its CASE, once in the WHERE
+				if (end > first && parameters + needed > MAX_PARAMETERS) {
+					break;
+				}
+				parameters += needed;
+				templates.add(template);
+				everyRow |= template.getCondition().isEmpty();
+			}
+			StringBuilder sql = new StringBuilder("SELECT ");
+			StringBuilder where = new StringBuilder();
+			for (int i = 0; i < templates.size(); i++) {
+				String condition = templates.get(i).getCondition().isEmpty() ? "1 = 1" : templates.get(i).getCondition();
+				sql.append(i == 0 ? "" : ", ").append("SUM(CASE WHEN ").append(condition).append(" THEN 1 ELSE 0 END)");
+				where.append(i == 0 ? "" : " OR ").append('(').append(condition).append(')');
+			}
+			sql.append(" FROM ").append(members.get(first).getTableName());
+			boolean filtered = !everyRow;
+			if (filtered) { // lets the database skip rows no member counts
+				sql.append(" WHERE ").append(where);
+			}
+			StringBuilder values = new StringBuilder();
+			for (int i = 0; i < templates.size(); i++) {
+				values.append(members.get(first + i).columnValues());
+			}
+			long[] queryCounts = asking.cachedQuery(sql.toString(), values.toString(), () -> {
+				try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+					int index = 1;
+					for (int i = 0; i < templates.size(); i++) {
+						index = templates.get(i).bindFrom(statement, members.get(first + i).columnValues(), index);
+					}
+					for (int i = 0; i < templates.size() && filtered; i++) {
+						index = templates.get(i).bindFrom(statement, members.get(first + i).columnValues(), index);
+					}
+					try (ResultSet queryResult = statement.executeQuery()) {
+						queryResult.next();
+						long[] sums = new long[templates.size()];
+						for (int i = 0; i < sums.length; i++) {
+							sums[i] = queryResult.getLong(i + 1); // SUM of no rows is NULL, read as 0
+						}
+						return sums;
+					}
+				}
+			});
+			System.arraycopy(queryCounts, 0, results, first, queryCounts.length);
+			return end;
+		}
+	}
+}
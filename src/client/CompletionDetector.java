@@ -0,0 +1,203 @@
+package client;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CompletionDetector object.
+ *
+ * <P>
+ * Decides when the Project service has finished ingesting the logs of a test
+ * case, instead of always sleeping for the worst-case wait. The cache and log
+ * folders are watched for file activity and the Observation table row counts of
+ * project.sqlite are polled over a read-only connection; once neither has
+ * changed for the quiet period the run is considered done. The configured wait
+ * is only used as a hard timeout.
+ *
+ * <P>
+ * A poll the service's lock refuses counts as activity. Any other database
+ * error is printed and the poll skipped, leaving the file activity to decide.
+ * Observation tables the database does not have are left out of the counts.
+ *
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class CompletionDetector {
+	private static final String[] observationTables = { "Observation", "ObservationAttribute",
+			"ObservationArchive" };
+	private static final int SQLITE_BUSY = 5, SQLITE_LOCKED = 6;
+	private final Path databasePath;
+	private final String[] watchFolders;
+	private final long quietMillis, pollMillis, timeoutMillis;
+	private String lastError;
+
+	/**
+	 * Constructor
+	 *
+	 * @param databasePath   path to the project.sqlite the service writes to
+	 * @param watchFolders   folders whose file activity counts as the service
+	 *                       still working
+	 * @param quietSeconds   how long nothing may change before the run is done
+	 * @param pollSeconds    how often the Observation row counts are polled
+	 * @param timeoutMinutes hard limit, the old fixed wait
+	 */
+	public CompletionDetector(String databasePath, String[] watchFolders, int quietSeconds, int pollSeconds,
+			int timeoutMinutes) {
+		this.databasePath = Paths.get(databasePath);
+		this.watchFolders = watchFolders;
+		quietMillis = TimeUnit.SECONDS.toMillis(quietSeconds);
+		pollMillis = TimeUnit.SECONDS.toMillis(Math.max(1, pollSeconds));
+		timeoutMillis = TimeUnit.MINUTES.toMillis(timeoutMinutes);
+	}
+
+	/**
+	 * Blocks until the service has been quiet for the quiet period after showing
+	 * some activity, or until the hard timeout passes.
+	 *
+	 * @return true if completion was detected, false if the hard timeout was hit
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public boolean awaitCompletion() throws IOException, InterruptedException {
+		try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+			for (String folder : watchFolders) {
+				if (folder != null && Files.isDirectory(Paths.get(folder))) {
+					Paths.get(folder).register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+							StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+				}
+			}
+			long start = System.currentTimeMillis();
+			long deadline = start + timeoutMillis;
+			long lastActivity = start;
+			long lastCountPoll = start;
+			boolean activitySeen = false;
+			long[] lastCounts = null;
+			try {
+				lastCounts = countObservationRows();
+			} catch (SQLException e) { // not ready yet, the first successful poll becomes the baseline
+				isBusy(e);
+			}
+			while (true) {
+				long now = System.currentTimeMillis();
+				if (now >= deadline) {
+					System.out.println("     No completion detected, hard timeout of "
+							+ TimeUnit.MILLISECONDS.toMinutes(timeoutMillis) + " minutes reached");
+					return false;
+				}
+				boolean changed = false;
+				WatchKey key = watcher.poll(Math.min(pollMillis, deadline - now), TimeUnit.MILLISECONDS);
+				while (key != null) {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						changed |= isServiceActivity(event);
+					}
+					key.reset();
+					key = watcher.poll();
+				}
+				now = System.currentTimeMillis();
+				if (now - lastCountPoll >= pollMillis) {
+					lastCountPoll = now;
+					try {
+						long[] counts = countObservationRows();
+						if (!Arrays.equals(counts, lastCounts)) {
+							changed = true;
+							lastCounts = counts;
+						}
+					} catch (SQLException e) {
+						changed |= isBusy(e);
+					}
+				}
+				if (changed) {
+					activitySeen = true;
+					lastActivity = now;
+				} else if (activitySeen && now - lastActivity >= quietMillis) {
+					System.out.println("     Completion detected after "
+							+ TimeUnit.MILLISECONDS.toSeconds(now - start) + " seconds, Observation row counts: "
+							+ Arrays.toString(lastCounts));
+					return true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Filters out watch events that are not caused by the service itself, such as
+	 * the shared memory file created by our own polling connection.
+	 *
+	 * @param event the watch event
+	 * @return true if the event shows the service is still working
+	 */
+	private static boolean isServiceActivity(WatchEvent<?> event) {
+		if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+			return true;
+		}
+		return !event.context().toString().endsWith("-shm");
+	}
+
+	/**
+	 * Tells a poll the service's lock refused from a real error, printing the
+	 * latter once.
+	 *
+	 * @param e the error of a poll
+	 * @return true if the database was busy or locked by the service
+	 */
+	private boolean isBusy(SQLException e) {
+		int code = e.getErrorCode() & 0xFF; // the primary result code of an extended one
+		if (code == SQLITE_BUSY || code == SQLITE_LOCKED) {
+			return true;
+		}
+		if (!String.valueOf(e.getMessage()).equals(lastError)) {
+			lastError = String.valueOf(e.getMessage());
+			System.out.println("     Could not poll the Observation row counts of " + databasePath + ": " + lastError);
+		}
+		return false;
+	}
+
+	/**
+	 * Counts the rows of each Observation table.
+	 *
+	 * @return the row counts in the order of observationTables, -1 for a table
+	 *         that does not exist, or null if the database does not exist yet
+	 * @throws SQLException if the database is locked or could not be read
+	 */
+	private long[] countObservationRows() throws SQLException {
+		if (!Files.exists(databasePath)) {
+			return null;
+		}
+		long[] counts = new long[observationTables.length];
+		try (Connection conn = TestBase.connectSQLite(databasePath.toString(), SQLiteProfile.LIVE_READ_ONLY);
+				Statement statement = conn.createStatement()) {
+			List<String> tables = new ArrayList<String>();
+			try (ResultSet result = statement.executeQuery("SELECT name FROM sqlite_master WHERE type = 'table'")) {
+				while (result.next()) {
+					tables.add(result.getString(1));
+				}
+			}
+			for (int i = 0; i < observationTables.length; i++) {
+				if (!tables.contains(observationTables[i])) {
+					counts[i] = -1;
+					continue;
+				}
+				try (ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM " + observationTables[i])) {
+					counts[i] = result.next() ? result.getLong(1) : 0;
+				}
+			}
+			conn.commit();
+		}
+		return counts;
+	}
+}
@@ -0,0 +1,105 @@
+package client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CopySummary data model object.
+ * 
+ * <P>
+ * Totals of a fixture copy or log rebasing run: files and bytes rebased,
+ * copied or hard linked, elapsed time, throughput and the files that failed.
+ * Failures and timing are kept by RunSummary.
+ * 
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class CopySummary extends RunSummary {
+	private final AtomicInteger files = new AtomicInteger();
+	private final AtomicLong bytes = new AtomicLong();
+	private final AtomicInteger copiedFiles = new AtomicInteger();
+	private final AtomicLong copiedBytes = new AtomicLong();
+	private final AtomicInteger linkedFiles = new AtomicInteger();
+	private final AtomicLong linkedBytes = new AtomicLong();
+
+	public CopySummary() {
+		super("copy or update dates in", "copied");
+	}
+
+	/**
+	 * Records a log whose dates were updated.
+	 * 
+	 * @param size bytes read from the file
+	 */
+	void addFile(long size) {
+		files.incrementAndGet();
+		bytes.addAndGet(size);
+	}
+
+	/**
+	 * Records a file that was copied without rebasing.
+	 * 
+	 * @param size bytes copied
+	 */
+	void addCopiedFile(long size) {
+		copiedFiles.incrementAndGet();
+		copiedBytes.addAndGet(size);
+	}
+
+	/**
+	 * Records a file that was hard linked instead of copied.
+	 * 
+	 * @param size size of the linked file
+	 */
+	void addLinkedFile(long size) {
+		linkedFiles.incrementAndGet();
+		linkedBytes.addAndGet(size);
+	}
+
+	public int getFiles() {
+		return files.get();
+	}
+
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	public int getCopiedFiles() {
+		return copiedFiles.get();
+	}
+
+	public long getCopiedBytes() {
+		return copiedBytes.get();
+	}
+
+	public int getLinkedFiles() {
+		return linkedFiles.get();
+	}
+
+	public long getLinkedBytes() {
+		return linkedBytes.get();
+	}
+
+	/**
+	 * @return megabytes rebased or copied per second, hard links not included
+	 */
+	public double getMegabytesPerSecond() {
+		return (bytes.get() + copiedBytes.get()) / 1048576.0 / Math.max(1, getElapsedMillis()) * 1000;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		if (files.get() > 0) {
+			text.append("Updated dates in " + files + " log file(s), " + bytes + " bytes; ");
+		}
+		if (copiedFiles.get() > 0 || linkedFiles.get() == 0) {
+			text.append("Copied " + copiedFiles + " file(s), " + copiedBytes + " bytes; ");
+		}
+		if (linkedFiles.get() > 0) {
+			text.append("Linked " + linkedFiles + " file(s), " + linkedBytes + " bytes; ");
+		}
+		text.append(getElapsedMillis() + " ms, " + String.format("%.1f", getMegabytesPerSecond()) + " MB/s");
+		return text.append(failureText()).toString();
+	}
+}
@@ -3,6 +3,7 @@ package client;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -31,6 +32,53 @@ public class DataCollectionTest extends OperationTest {
 		updateLogFileDates = keyInHashMap(allData, "updatedatesinlogs");
 	}
 
+	/**
+	 * Rows with the same log source and wait settings share a Project run.
+	 */
+	@Override
+	protected String getScenarioKey() {
+		if (!keyInHashMap(allData, "include") || !keyInHashMap(allData, "logsourcepathpart2")) {
+			return null;
+		}
+		return "DataCollection|" + sourcePath + "|" + waitMinutesProjectClientDataCollection + "|" + updateLogFileDates;
+	}
+
+	/**
+	 * Stages this test's fixtures ahead of time if it will run Project.
+	 */
+	@Override
+	public void stageFixtures() {
+		if (!isScenarioFollower() && getScenarioKey() != null) {
+			stageFixtures(copyFrom, copyTo, updateLogFileDates);
+		}
+	}
+
+	@Override
+	protected String getDatabaseKey() {
+		return "sqlite|" + agentProgramCachePath;
+	}
+
+	@Override
+	protected String getContentFingerprint() throws SQLException {
+		return QueryResultCache.sqliteFingerprint(agentProgramCachePath + "\\Project.sqlite");
+	}
+
+	/**
+	 * Opens the service's cache database, which is not written to once the
+	 * service is stopped: read-only for a SELECT, bulk writing for an INSERT,
+	 * keeping the journal mode the service set.
+	 */
+	@Override
+	protected Connection openConnection() throws SQLException {
+		SQLiteProfile profile = SQLiteProfile.DEFAULT;
+		if ("SELECT".equals(actionType)) {
+			profile = SQLiteProfile.READ_ONLY;
+		} else if ("INSERT".equals(actionType)) {
+			profile = SQLiteProfile.BULK_WRITE;
+		}
+		return connectSQLite(agentProgramCachePath + "\\Project.sqlite", profile);
+	}
+
 	/**
 	 * Running a test, running project, and then checking the produced data. 
 	 * 
@@ -38,16 +86,17 @@ public class DataCollectionTest extends OperationTest {
 	 * @throws IOException
 	 * @throws InterruptedException
 	 */
+	@Override
 	public void runAction() throws SQLException, IOException, InterruptedException {// Runs the test
 		startLocalDateTime = LocalDateTime.now();
 		if (keyInHashMap(allData, "include")) {
 			System.out.println(
 					"\n-------------------------------------------------------\n" + "Starting a new test case.");
-			if (keyInHashMap(allData, "logsourcepathpart2")) {
+			if (keyInHashMap(allData, "logsourcepathpart2") && !reuseScenarioRun()) {
 				performProjectAction(waitMinutesProjectClientDataCollection, pathsToClean, copyFrom, copyTo,
 						archiveDest + "/" + startLocalDateTime.toString().replaceAll(":","-"), pathsToArchive, updateLogFileDates);
 			}
-			SQLConnection = connectSQLite(agentProgramCachePath + "\\Project.sqlite");
+			SQLConnection = openConnection();
 			innerRunAction("sqlite");
 		}
 		else {
@@ -2,14 +2,16 @@ package client;
 
 import static org.junit.Assert.fail;
 
+import java.io.File;
 import java.io.IOException;
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 
 public class DataPushTest extends OperationTest {
-	private String serverName, databaseName;
-	private int portNumber;
+	private String serverName, databaseName, mysqlUser, mysqlPassword;
+	private int portNumber, mysqlPoolMaxIdle;
 	private final String[] pathsToClean = { agentLogsDestinationPath, logDestinationPath, mcmLogFolderPath,
 			agentProgramCachePath, projectClientLogPath };
 	private final String[] copyFrom = { sourcePath + "SQLite Files/project.sqlite" };
@@ -28,7 +30,71 @@ public class DataPushTest extends OperationTest {
 		super(test, testData);
 		serverName = testData.get("mysqlserver");
 		portNumber = (int) Math.round(Double.parseDouble(testData.get("portnumber")));
-		databaseName = allData.get("databasename");
+		// a sandbox slot's own database takes the place of the row's, see SandboxPool
+		databaseName = keyInHashMap(testData, "mysqldatabase") ? testData.get("mysqldatabase")
+				: allData.get("databasename");
+		// TestData.xlsx first, then the environment
+		mysqlUser = keyInHashMap(testData, "mysqluser") ? testData.get("mysqluser") : System.getenv("MYSQL_USER");
+		mysqlPassword = keyInHashMap(testData, "mysqlpassword") ? testData.get("mysqlpassword")
+				: System.getenv("MYSQL_PASSWORD");
+		if (mysqlUser == null || mysqlPassword == null) {
+			fail(testCaseNumber + "... No MySQL credentials. Please provide \"MySQL User\" and \"MySQL Password\" in"
+					+ " the Test Data sheet or set MYSQL_USER and MYSQL_PASSWORD");
+		}
+		mysqlPoolMaxIdle = keyInHashMap(testData, "mysqlpoolmaxidle")
+				? (int) Math.round(Double.parseDouble(testData.get("mysqlpoolmaxidle")))
+				: 4;
+		// Only for rows where the service does not write to the seeded project.sqlite,
+		// as a hard link would let it change the fixture itself; runAction fails the row if it does
+		if (keyInHashMap(allData, "linkfixtures")) {
+			fixtureCopyMode = FixtureCopier.Mode.LINK;
+		}
+	}
+
+	/**
+	 * Rows with the same log source and wait settings share a Project run.
+	 */
+	@Override
+	protected String getScenarioKey() {
+		if (!keyInHashMap(allData, "include") || !keyInHashMap(allData, "logsourcepathpart2")) {
+			return null;
+		}
+		return "DataPush|" + sourcePath + "|" + waitMinutesProjectClientDataPush + "|" + fixtureCopyMode;
+	}
+
+	/**
+	 * Stages this test's fixtures ahead of time if it will run Project.
+	 */
+	@Override
+	public void stageFixtures() {
+		if (!isScenarioFollower() && getScenarioKey() != null) {
+			stageFixtures(copyFrom, copyTo, false);
+		}
+	}
+
+	@Override
+	protected String getDatabaseKey() {
+		return "mysql|" + serverName + ":" + portNumber + "/" + databaseName;
+	}
+
+	@Override
+	protected String getDatabaseName() {
+		return databaseName;
+	}
+
+	@Override
+	protected String getContentFingerprint() throws SQLException {
+		return QueryResultCache.mysqlFingerprint(SQLConnection, getTableName());
+	}
+
+	/**
+	 * Borrows a connection from the suite's MySqlConnectionPool; closing it gives
+	 * it back.
+	 */
+	@Override
+	protected Connection openConnection() throws SQLException {
+		return MySqlConnectionPool.borrow(serverName, portNumber, databaseName, mysqlUser, mysqlPassword,
+				mysqlPoolMaxIdle);
 	}
 
 	/**
@@ -38,17 +104,27 @@ public class DataPushTest extends OperationTest {
 	 * @throws IOException
 	 * @throws InterruptedException
 	 */
+	@Override
 	public void runAction() throws SQLException, IOException, InterruptedException {
 		startLocalDateTime = LocalDateTime.now();
 		if (keyInHashMap(allData, "include")) {
 			System.out.println(
 					"\n-------------------------------------------------------\n" + "Starting a new test case.");
-			if (keyInHashMap(allData, "logsourcepathpart2")) {
+			if (keyInHashMap(allData, "logsourcepathpart2") && !reuseScenarioRun()) {
+				// a linked seed is the fixture itself, so it must come out of the run as it went in
+				File seed = new File(copyFrom[0]);
+				long seedSize = seed.length(), seedModified = seed.lastModified();
 				performProjectAction(waitMinutesProjectClientDataPush, pathsToClean, copyFrom, copyTo,
 						archiveDest + "/" + startLocalDateTime.toString().replaceAll(":","-"),
 						pathsToArchive, false);
+				if (fixtureCopyMode == FixtureCopier.Mode.LINK
+						&& (seed.length() != seedSize || seed.lastModified() != seedModified)) {
+					pass = false;
+					fail(testCaseNumber + "... The service wrote to the hard linked fixture " + seed
+							+ ". Please clear \"Link Fixtures\" for this row and restore the fixture");
+				}
 			}
-			SQLConnection = connectMySQL(serverName, portNumber, databaseName);
+			SQLConnection = openConnection();
 			innerRunAction("mysql");
 		}
 		else {
@@ -34,6 +34,45 @@ public class ExcelHandler {
 		return TestDataHashMap;
 	}
 
+//  getSandboxSlots(HashMap<String, String> testDataHash) parses the optional "Sandbox Slots" sheet of TestData.xlsx. Each row
+//  after the title row is one service instance with its own service name, cache and log paths, given as a copy of the test
+//  data with the row's columns laid over it and "sandboxslot" set to the row number. Returns an empty list if the sheet
+//  does not exist.
+//  Requires: the title row uses the same key names as the "Test Data" sheet.
+	public static ArrayList<HashMap<String, String>> getSandboxSlots(HashMap<String, String> testDataHash)
+			throws IOException {
+		String path = new File("").getAbsolutePath();
+		File file = new File(path + "/Tests/TestData.xlsx");
+		ArrayList<HashMap<String, String>> slots = new ArrayList<HashMap<String, String>>();
+		FileInputStream fileInput = new FileInputStream(file);
+		Workbook workbook = new XSSFWorkbook(fileInput);
+		Sheet sheet = workbook.getSheet("Sandbox Slots");
+		if (sheet != null) {
+			ArrayList<String> columnTitles = new ArrayList<String>();
+			for (Cell titleCell : sheet.getRow(0)) {
+				columnTitles.add(titleCell.toString().replaceAll("\\s*", "").toLowerCase());
+			}
+			for (int i = 1; i < sheet.getLastRowNum() + 1; i++) {
+				Row slotRow = sheet.getRow(i);
+				if (slotRow == null) {
+					continue;
+				}
+				HashMap<String, String> slot = new HashMap<String, String>(testDataHash);
+				slot.put("sandboxslot", String.valueOf(i));
+				for (int j = 0; j < slotRow.getLastCellNum() && j < columnTitles.size(); j++) {
+					Cell slotCell = slotRow.getCell(j);
+					if (slotCell != null && !slotCell.toString().isEmpty()) {
+						slot.put(columnTitles.get(j), slotCell.toString());
+					}
+				}
+				slots.add(slot);
+			}
+		}
+		workbook.close();
+		fileInput.close();
+		return slots;
+	}
+
 //  These functions parse excel sheets and turn them into arraylists of the associated objects.
 //  Requires: excel sheets must exist in a specific location with specific layout and sheet names.
 	public static ArrayList<DataCollectionTest> getDataCollectionTests(HashMap<String, String> testDataHash)
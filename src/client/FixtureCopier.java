@@ -0,0 +1,182 @@
+package client;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * FixtureCopier helper object.
+ * 
+ * <P>
+ * Copies fixture trees with several files in flight at once, letting the
+ * kernel move the bytes through FileChannel.transferTo. Fixtures the service
+ * only reads can be hard linked instead of copied, falling back to a copy when
+ * the destination is on another volume or links are not supported. Each copy
+ * reports its throughput in a CopySummary.
+ * 
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class FixtureCopier {
+	/**
+	 * How files reach the destination. LINK must only be used for files nothing
+	 * will write to, since the destination shares its data with the source.
+	 */
+	public enum Mode {
+		COPY, LINK
+	}
+
+	private FixtureCopier() {
+	}
+
+	/**
+	 * Writes one file to its target in a special way, such as rebasing a log.
+	 */
+	interface FileTransform {
+		/**
+		 * @return false if the file should be copied normally instead
+		 */
+		boolean apply(Path source, Path target) throws IOException;
+	}
+
+	/**
+	 * Work done on one file of a parallel run.
+	 */
+	interface FileTask {
+		void run(Path file) throws IOException;
+	}
+
+	/**
+	 * Copies a folder's contents, or a single file, into a destination folder.
+	 * 
+	 * @param source                   folder or file to copy
+	 * @param destination              folder the source is copied into
+	 * @param mode                     copy or hard link the files
+	 * @param preserveFileModifiedDate keeps the modified date of copied files
+	 * @param parallelism              number of files copied at once
+	 * @return totals of the run
+	 * @throws IOException if the source could not be walked
+	 */
+	public static CopySummary copy(Path source, Path destination, Mode mode, boolean preserveFileModifiedDate,
+			int parallelism) throws IOException {
+		return copy(source, destination, mode, preserveFileModifiedDate, parallelism, null);
+	}
+
+	/**
+	 * Copies a folder's contents, or a single file, into a destination folder,
+	 * giving each file to the transform first.
+	 * 
+	 * @param transform writes files it handles itself, or null
+	 * @see #copy(Path, Path, Mode, boolean, int)
+	 */
+	static CopySummary copy(Path source, Path destination, Mode mode, boolean preserveFileModifiedDate,
+			int parallelism, FileTransform transform) throws IOException {
+		CopySummary summary = new CopySummary();
+		Path absoluteSource = source.toAbsolutePath();
+		Path root = Files.isDirectory(absoluteSource) ? absoluteSource : absoluteSource.getParent();
+		List<Path> files = new ArrayList<Path>();
+		try (Stream<Path> paths = Files.walk(absoluteSource)) {
+			for (Path path : (Iterable<Path>) paths::iterator) {
+				if (Files.isDirectory(path)) {
+					Files.createDirectories(destination.resolve(root.relativize(path).toString()));
+				} else if (Files.isRegularFile(path)) {
+					files.add(path);
+				}
+			}
+		}
+		Files.createDirectories(destination);
+		runAll(files, parallelism, summary::addFailure, file -> {
+			Path target = destination.resolve(root.relativize(file).toString());
+			long size = Files.size(file);
+			if (transform != null && transform.apply(file, target)) {
+				summary.addFile(size);
+			} else if (mode == Mode.LINK && link(file, target)) {
+				summary.addLinkedFile(size);
+			} else {
+				transferCopy(file, target, preserveFileModifiedDate);
+				summary.addCopiedFile(size);
+			}
+		});
+		summary.finish();
+		return summary;
+	}
+
+	/**
+	 * Runs a task for every file on a bounded fork-join pool, handing the
+	 * failures to onFailure rather than stopping the other files.
+	 */
+	static void runAll(List<Path> files, int parallelism, BiConsumer<Path, Exception> onFailure, FileTask task)
+			throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(parallelism, files.size())));
+		try {
+			List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+			for (Path file : files) {
+				tasks.add(pool.submit(() -> {
+					try {
+						task.run(file);
+					} catch (IOException | RuntimeException e) {
+						onFailure.accept(file, e);
+					}
+				}));
+			}
+			for (ForkJoinTask<?> forkJoinTask : tasks) {
+				forkJoinTask.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while processing " + files.size() + " files", e);
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Hard links the target to the source.
+	 * 
+	 * @return false if a link could not be made and the file should be copied
+	 */
+	private static boolean link(Path source, Path target) {
+		try {
+			Files.deleteIfExists(target);
+			Files.createLink(target, source);
+			return true;
+		} catch (IOException | UnsupportedOperationException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Copies a file with FileChannel.transferTo so the data does not pass through
+	 * Java buffers.
+	 */
+	static void transferCopy(Path source, Path target, boolean preserveFileModifiedDate)
+			throws IOException {
+		Files.deleteIfExists(target); // never write through a hard link into a snapshot or fixture
+		try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+			long size = in.size();
+			for (long position = 0; position < size;) {
+				long transferred = in.transferTo(position, size - position, out);
+				if (transferred == 0) { // the source shrank while it was copied
+					throw new IOException(source + " ended at " + position + " of " + size + " bytes while copying");
+				}
+				position += transferred;
+			}
+		}
+		if (preserveFileModifiedDate) {
+			Files.setLastModifiedTime(target, Files.getLastModifiedTime(source));
+		}
+	}
+}
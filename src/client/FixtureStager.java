@@ -0,0 +1,263 @@
+package client;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * FixtureStager helper object.
+ * 
+ * <P>
+ * Prepares the fixture tree of the next test case while the current one is
+ * still running. Sources are copied into staging folders next to their
+ * destinations; once the service is stopped the staging folders are renamed
+ * into place, so setup overlaps with the service wait instead of adding to it.
+ * Logs whose dates are updated only have their LogTemplate compiled while
+ * staging, and are rendered into the staging folders when the fixture is
+ * swapped in, so their dates are relative to when the case runs rather than
+ * when it was staged. Fixtures are staged one after another, and a handful may
+ * wait to be taken.
+ * 
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class FixtureStager {
+	private static final ExecutorService stager = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "fixture-stager");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private static final int MAX_PENDING = 2;
+	private static final ArrayList<StagedFixture> pending = new ArrayList<StagedFixture>();
+
+	private FixtureStager() {
+	}
+
+	/**
+	 * Starts staging a fixture in the background, after any fixture already
+	 * being staged. The oldest unused fixture is discarded if too many are
+	 * waiting.
+	 * 
+	 * @param copyFrom           fixture sources, files or folders
+	 * @param copyTo             destination folder of each source
+	 * @param updateLogFileDates true to update log dates while staging
+	 * @param mode               copy or hard link files that are not rebased
+	 * @param threads            number of files copied at once
+	 */
+	public static synchronized void stage(String[] copyFrom, String[] copyTo, boolean updateLogFileDates,
+			FixtureCopier.Mode mode, int threads) {
+		if (pending.size() >= MAX_PENDING) {
+			discard(pending.remove(0));
+		}
+		StagedFixture fixture = new StagedFixture(copyFrom, copyTo, updateLogFileDates, mode, threads);
+		pending.add(fixture);
+		fixture.result = stager.submit(() -> {
+			fixture.stagedAt = LocalDateTime.now();
+			for (int i = 0; i < copyFrom.length; i++) {
+				if (copyFrom[i] == null || copyTo[i] == null || !new File(copyFrom[i]).exists()) {
+					continue;
+				}
+				Path destination = new File(copyTo[i]).toPath().toAbsolutePath();
+				Path staging = fixture.stagingFolders.get(destination);
+				if (staging == null) {
+					staging = destination
+							.resolveSibling("." + destination.getFileName() + ".staging-" + System.nanoTime());
+					fixture.stagingFolders.put(destination, staging);
+				}
+				if (updateLogFileDates) { // logs are rendered by swapIn
+					FixtureCopier.copy(new File(copyFrom[i]).toPath(), staging, FixtureCopier.Mode.COPY, true, threads,
+							(file, target) -> {
+								if (!LogDateRebaser.isLogFile(file)) {
+									return false;
+								}
+								LogTemplate.prepare(file, LogDateRebaser.isAgentLog(file));
+								return true;
+							}).throwIfFailed();
+					fixture.stagedLogs.add(new Path[] { new File(copyFrom[i]).toPath(), staging });
+				} else {
+					TestBase.copyFoldersOrFiles(new File(copyFrom[i]), staging.toFile(), true, mode, threads);
+				}
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Takes the oldest fixture staged for these paths, waiting for staging to
+	 * finish. Fixtures staged before it are discarded, as are fixtures that
+	 * failed or were staged longer ago than maxAge.
+	 * 
+	 * @param copyFrom           fixture sources, files or folders
+	 * @param copyTo             destination folder of each source
+	 * @param updateLogFileDates true if log dates should be updated
+	 * @param mode               copy or hard link files that are not rebased
+	 * @param maxAge             oldest staged fixture that may still be used, as
+	 *                           its sources may have changed since it was staged
+	 * @return the staged fixture, or null if the caller should copy itself
+	 * @throws InterruptedException
+	 */
+	public static synchronized StagedFixture take(String[] copyFrom, String[] copyTo, boolean updateLogFileDates,
+			FixtureCopier.Mode mode, Duration maxAge) throws InterruptedException {
+		StagedFixture fixture = null;
+		for (int i = 0; i < pending.size(); i++) {
+			if (pending.get(i).matches(copyFrom, copyTo, updateLogFileDates, mode)) {
+				for (int j = 0; j < i; j++) {
+					discard(pending.remove(0));
+				}
+				fixture = pending.remove(0);
+				break;
+			}
+		}
+		if (fixture == null) {
+			return null;
+		}
+		try {
+			fixture.result.get();
+		} catch (ExecutionException e) {
+			System.out.println("     Staging the fixture failed, copying instead: " + e.getCause());
+			discard(fixture);
+			return null;
+		}
+		if (fixture.stagingFolders.isEmpty()) { // none of the sources existed, let the caller report it
+			return null;
+		}
+		if (Duration.between(fixture.stagedAt, LocalDateTime.now()).compareTo(maxAge) > 0) {
+			System.out.println("     Staged fixture is older than " + maxAge.toMinutes() + " minutes, copying instead");
+			discard(fixture);
+			return null;
+		}
+		return fixture;
+	}
+
+	/**
+	 * Discards every fixture that was staged but not taken, such as the last one
+	 * prefetched or those of rows that failed before copying, and waits until
+	 * their staging folders are handed to the FolderReaper. Called once at the
+	 * end of the suite, before the FolderReaper is awaited.
+	 * 
+	 * @throws InterruptedException
+	 */
+	public static void discardAll() throws InterruptedException {
+		synchronized (FixtureStager.class) {
+			while (!pending.isEmpty()) {
+				discard(pending.remove(0));
+			}
+		}
+		try {
+			stager.submit(() -> null).get(); // runs after the discards queued above
+		} catch (ExecutionException e) {
+			System.out.println("     Could not discard staged fixtures: " + e.getCause());
+		}
+	}
+
+	/**
+	 * Hands the staging folders of an unused fixture to the FolderReaper, once
+	 * staging has stopped writing to them.
+	 */
+	private static void discard(StagedFixture fixture) {
+		if (fixture == null) {
+			return;
+		}
+		fixture.result.cancel(false);
+		stager.submit(() -> {
+			for (Path staging : fixture.stagingFolders.values()) {
+				if (Files.exists(staging)) {
+					FolderReaper.reap(staging);
+				}
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * A fixture staged, or being staged, for a set of source and destination
+	 * paths.
+	 */
+	public static class StagedFixture {
+		private final String[] copyFrom, copyTo;
+		private final boolean updateLogFileDates;
+		private final FixtureCopier.Mode mode;
+		private final int threads;
+		// destination folder -> staging folder, in the order they were created
+		private final Map<Path, Path> stagingFolders = new LinkedHashMap<Path, Path>();
+		// {source, staging folder} of each source whose logs swapIn renders
+		private final ArrayList<Path[]> stagedLogs = new ArrayList<Path[]>();
+		private volatile LocalDateTime stagedAt;
+		private Future<?> result;
+
+		private StagedFixture(String[] copyFrom, String[] copyTo, boolean updateLogFileDates,
+				FixtureCopier.Mode mode, int threads) {
+			this.copyFrom = copyFrom;
+			this.copyTo = copyTo;
+			this.updateLogFileDates = updateLogFileDates;
+			this.mode = mode;
+			this.threads = threads;
+		}
+
+		private boolean matches(String[] copyFrom, String[] copyTo, boolean updateLogFileDates,
+				FixtureCopier.Mode mode) {
+			return Arrays.equals(this.copyFrom, copyFrom) && Arrays.equals(this.copyTo, copyTo)
+					&& this.updateLogFileDates == updateLogFileDates && this.mode == mode;
+		}
+
+		/**
+		 * Renders the staged logs against the current time, then renames each
+		 * staging folder into place, reaping what is at the destination. Must
+		 * only be called while the service is stopped. If a
+		 * folder cannot be moved, the destinations are emptied, including those
+		 * already swapped in, and the staging folders left are reaped, so the
+		 * caller copies into clean folders.
+		 * 
+		 * @throws IOException if a log could not be rendered or a staging folder
+		 *                     could not be moved, in which case the caller should
+		 *                     copy instead
+		 */
+		public void swapIn() throws IOException {
+			try {
+				LocalDateTime now = LocalDateTime.now();
+				for (Path[] logs : stagedLogs) {
+					FixtureCopier.copy(logs[0], logs[1], FixtureCopier.Mode.COPY, true, threads,
+							(file, target) -> !LogDateRebaser.isLogFile(file)
+									|| LogTemplate.render(file, target, LogDateRebaser.isAgentLog(file), now))
+							.throwIfFailed();
+				}
+				for (Map.Entry<Path, Path> folders : stagingFolders.entrySet()) {
+					if (Files.exists(folders.getKey())) {
+						FolderReaper.reap(folders.getKey());
+					}
+					Files.move(folders.getValue(), folders.getKey(), StandardCopyOption.ATOMIC_MOVE);
+				}
+			} catch (IOException e) {
+				for (Map.Entry<Path, Path> folders : stagingFolders.entrySet()) {
+					if (Files.exists(folders.getKey())) {
+						FolderReaper.clean(folders.getKey().toFile());
+					}
+					if (Files.exists(folders.getValue())) {
+						try {
+							FolderReaper.reap(folders.getValue());
+						} catch (IOException ex) {
+							System.out.println("     Could not reap staging folder... " + folders.getValue() + ": " + ex);
+						}
+					}
+				}
+				throw e;
+			}
+		}
+
+		public LocalDateTime getStagedAt() {
+			return stagedAt;
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package client;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * FolderReaper helper object.
+ * 
+ * <P>
+ * Cleans folders without making the test wait for the delete: the folder is
+ * renamed to a trash folder next to it, an empty folder is created in its
+ * place, and the trash is deleted in parallel on a background reaper thread.
+ * Bytes left behind and failures are reported at the end of the suite.
+ * 
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class FolderReaper {
+	private static final ExecutorService reaper = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "folder-reaper");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private static final ForkJoinPool deleters = new ForkJoinPool(
+			Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+	private static final AtomicLong reapedBytes = new AtomicLong();
+	private static final AtomicLong leftoverBytes = new AtomicLong();
+	private static final Map<Path, IOException> failures = new ConcurrentHashMap<Path, IOException>();
+
+	private FolderReaper() {
+	}
+
+	/**
+	 * Empties a folder, returning as soon as an empty folder is in place. Falls
+	 * back to cleaning in place if the folder cannot be renamed, e.g. because a
+	 * file in it is still open.
+	 * 
+	 * @param folder the folder to clean
+	 */
+	public static void clean(File folder) {
+		Path path = folder.toPath().toAbsolutePath();
+		Path trash = path.resolveSibling("." + path.getFileName() + ".trash-" + System.nanoTime());
+		boolean wasFolder = Files.isDirectory(path);
+		try {
+			Files.move(path, trash, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.out.println("     Could not move " + path + " to trash, cleaning in place: " + e);
+			try {
+				FileUtils.cleanDirectory(folder); // cleanDirectory should not delete the directory, but it does,
+				if (!folder.exists()) { // hence the forceMkdir
+					FileUtils.forceMkdir(folder);
+				}
+			} catch (IOException ex) {
+				System.out.println(ex);
+			}
+			return;
+		}
+		if (wasFolder) { // a file is only moved away, never replaced by a folder
+			try {
+				Files.createDirectories(path);
+			} catch (IOException e) {
+				System.out.println(e);
+			}
+		}
+		reaper.submit(() -> deleters.invoke(new DeleteTree(trash)));
+	}
+
+	/**
+	 * Moves a folder out of the way to trash and deletes it in the background,
+	 * without putting an empty folder in its place.
+	 * 
+	 * @param folder the folder to get rid of
+	 * @throws IOException if the folder could not be moved
+	 */
+	public static void reap(Path folder) throws IOException {
+		Path path = folder.toAbsolutePath();
+		Path trash = path.resolveSibling("." + path.getFileName() + ".trash-" + System.nanoTime());
+		Files.move(path, trash, StandardCopyOption.ATOMIC_MOVE);
+		reaper.submit(() -> deleters.invoke(new DeleteTree(trash)));
+	}
+
+	/**
+	 * Waits for the deletes submitted so far and prints what the reaper could not
+	 * remove. The reaper keeps running, so folders can still be cleaned and
+	 * reaped afterwards.
+	 * 
+	 * @throws InterruptedException
+	 */
+	public static void awaitAndReport() throws InterruptedException {
+		try {
+			reaper.submit(() -> null).get(10, TimeUnit.MINUTES); // runs after every delete queued before it
+		} catch (TimeoutException e) {
+			System.out.println("Folder reaper still deleting after 10 minutes, giving up on waiting.");
+		} catch (ExecutionException e) {
+			System.out.println(e);
+		}
+		System.out.println("Folder reaper deleted " + reapedBytes + " bytes, " + failures.size() + " failure(s), "
+				+ leftoverBytes + " bytes left behind.");
+		for (Map.Entry<Path, IOException> failure : failures.entrySet()) {
+			System.out.println("     Could not delete... " + failure.getKey() + ": " + failure.getValue());
+		}
+	}
+
+	/**
+	 * Deletes a file or folder tree, deleting the entries of a folder in
+	 * parallel before the folder itself.
+	 */
+	private static class DeleteTree extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final String path; // a String, as Path is not serializable
+
+		private DeleteTree(Path path) {
+			this.path = path.toString();
+		}
+
+		@Override
+		protected void compute() {
+			Path path = Paths.get(this.path);
+			if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+				List<DeleteTree> children = new ArrayList<DeleteTree>();
+				try (DirectoryStream<Path> entries = Files.newDirectoryStream(path)) {
+					for (Path entry : entries) {
+						children.add(new DeleteTree(entry));
+					}
+				} catch (IOException e) {
+					failures.put(path, e);
+					return;
+				}
+				invokeAll(children);
+			}
+			long size = 0;
+			try {
+				size = Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS) ? Files.size(path) : 0;
+				Files.delete(path);
+				reapedBytes.addAndGet(size);
+			} catch (IOException e) {
+				failures.put(path, e);
+				leftoverBytes.addAndGet(size);
+			}
+		}
+	}
+}
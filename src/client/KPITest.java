@@ -1,86 +1,46 @@
 package client;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.time.Duration;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
-import java.time.Period;
+import java.util.Arrays;
 import java.util.HashMap;
 
-public class KPITest extends OperationTest {
+public abstract class KPITest extends OperationTest {
+	private static final byte[] UTF8_BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
 
 	protected KPITest(HashMap<String, String> test, HashMap<String, String> testData) {
 		super(test, testData);
 	}
 
-	private static long[] getOffsetTime(LocalDateTime prev, LocalDateTime last) { // From
-																					// https://stackoverflow.com/questions/25747499/java-8-calculate-difference-between-two-localdatetime
-		LocalDateTime temp = LocalDateTime.of(last.getYear(), last.getMonthValue(), last.getDayOfMonth(),
-				prev.getHour(), prev.getMinute(), prev.getSecond());
-		Duration duration = Duration.between(temp, last);
-		long seconds = duration.getSeconds();
-		long hours = seconds / (60 * 60);
-		long minutes = ((seconds % (60 * 60)) / 60);
-		long secs = (seconds % 60);
-		return new long[] { hours, minutes, secs };
-	}
-
+	/**
+	 * Writes input.log to output.log with its dates moved relative to the current
+	 * date, dropping a leading byte order mark.
+	 * 
+	 * @throws IOException
+	 */
 	public static void kpiFileEdit() throws IOException {
-		BufferedReader in = null;
-		BufferedWriter out = null;
-		String tempLine = null;
-		LocalDateTime lastDateTime = null;
-		LocalDateTime prevDateTime = null;
-		LocalDateTime curDateTime = LocalDateTime.now();
-		LocalDateTime tempDateTime = null;
-		try {
-			in = new BufferedReader(new FileReader("input.log"));
-			while (((tempLine = in.readLine()) != null)) {
-				if (tempLine.matches("^\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}.*")) {
-					lastDateTime = LocalDateTime.parse(tempLine.split(" ")[0]);
-				}
-			}
-			if (in != null) {
-				in.close();
+		Path input = Paths.get("input.log");
+		long finalTimestamp = LogDateRebaser.findFinalTimestamp(input, false);
+		try (PushbackInputStream in = new PushbackInputStream(Files.newInputStream(input), UTF8_BOM.length);
+				OutputStream out = new BufferedOutputStream(Files.newOutputStream(Paths.get("output.log")))) {
+			byte[] head = new byte[UTF8_BOM.length];
+			int headLength = in.read(head);
+			if (headLength > 0 && !Arrays.equals(head, UTF8_BOM)) {
+				in.unread(head, 0, headLength); // not a byte order mark, so part of the first line
 			}
-			
-			in = new BufferedReader(new FileReader("input.log"));
-			out = new BufferedWriter(new FileWriter("output.log"));
-			tempLine = null;
-			while (((tempLine = in.readLine()) != null)) {
-				tempLine = tempLine.replace("﻿","");
-				if (tempLine.trim().matches("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}.*")) {
-					prevDateTime = LocalDateTime.parse(tempLine.split(" ")[0]);
-					Period offsetDate = Period.between(prevDateTime.toLocalDate(), lastDateTime.toLocalDate());
-					long offsetTime[] = getOffsetTime(prevDateTime, lastDateTime);
-					tempDateTime = curDateTime.minus(offsetDate).minusHours(offsetTime[0]).minusMinutes(offsetTime[1])
-							.minusSeconds(offsetTime[2]);
-					tempDateTime = tempDateTime.minusNanos(tempDateTime.getNano());
-					System.out.println(prevDateTime.toString());
-					System.out.println(tempDateTime.toString());
-
-					tempLine = tempLine.replaceAll("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}",
-							((tempDateTime.getSecond() == 0) ? 
-									(tempDateTime.toString() + ":00")
-									: (tempDateTime.toString())));
-					
-					out.write(tempLine, 0, tempLine.length());
-					out.newLine();
-				} else {
-					System.out.println(tempLine);
-					out.write(tempLine, 0, tempLine.length());
-					out.newLine();
+			if (finalTimestamp == TimestampCodec.INVALID) {
+				byte[] buffer = new byte[1 << 16];
+				for (int read = in.read(buffer); read > 0; read = in.read(buffer)) {
+					out.write(buffer, 0, read);
 				}
-			}
-		} finally {
-			if (in != null) {
-				in.close();
-			}
-			if (out != null) {
-				out.close();
+			} else {
+				LogDateRebaser.rebase(in, out, false, LogDateRebaser.shiftSeconds(finalTimestamp, LocalDateTime.now()));
 			}
 		}
 	}
@@ -0,0 +1,108 @@
+package client;
+
+/**
+ * LatencyHistogram data model object.
+ *
+ * <P>
+ * Records latencies in nanoseconds into log-linear buckets: exact below 128 ns,
+ * then 64 buckets per power of two, so any recorded value is reported within
+ * about 1.6% of its true value across the whole long range, in a fixed 30KB of
+ * counts. Not thread safe; give every thread its own histogram and add them
+ * together at the end.
+ *
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class LatencyHistogram {
+	private static final int SUB_BUCKETS = 128, HALF = SUB_BUCKETS / 2, SUB_BITS = 7;
+	private final long[] counts = new long[SUB_BUCKETS + (64 - SUB_BITS) * HALF];
+	private long totalCount, maxValue, sum;
+
+	/**
+	 * @param nanos latency of one operation
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts[index(value)]++;
+		totalCount++;
+		sum += value;
+		maxValue = Math.max(maxValue, value);
+	}
+
+	/**
+	 * Adds the counts of another histogram to this one.
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+		totalCount += other.totalCount;
+		sum += other.sum;
+		maxValue = Math.max(maxValue, other.maxValue);
+	}
+
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	public long getMaxValue() {
+		return maxValue;
+	}
+
+	public double getMean() {
+		return totalCount == 0 ? 0 : (double) sum / totalCount;
+	}
+
+	/**
+	 * @param percentile e.g. 99.9
+	 * @return the latency in nanoseconds at or below which that percentage of
+	 *         operations completed, 0 if nothing was recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (totalCount == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(highestValue(i), maxValue);
+			}
+		}
+		return maxValue;
+	}
+
+	/**
+	 * @return p50, p99 and p999 in milliseconds, plus the max
+	 */
+	@Override
+	public String toString() {
+		return String.format("p50 %.3f ms, p99 %.3f ms, p999 %.3f ms, max %.3f ms", millis(getValueAtPercentile(50)),
+				millis(getValueAtPercentile(99)), millis(getValueAtPercentile(99.9)), millis(maxValue));
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1000000.0;
+	}
+
+	private static int index(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+		return SUB_BUCKETS + (shift - 1) * HALF + (int) ((value >>> shift) - HALF);
+	}
+
+	/**
+	 * @return the largest value that falls into a bucket
+	 */
+	private static long highestValue(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = (index - SUB_BUCKETS) / HALF + 1;
+		long lowest = (long) ((index - SUB_BUCKETS) % HALF + HALF) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+}
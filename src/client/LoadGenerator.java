@@ -0,0 +1,231 @@
+package client;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * LoadGenerator helper object.
+ *
+ * <P>
+ * Runs a mix of read and write operations against a database from several
+ * worker threads at once, each with its own connection, for a fixed time and
+ * records the latency of every operation. With a target rate the workers
+ * between them start that many operations per second on a fixed schedule, and
+ * latency is measured from when an operation was due rather than when it
+ * started, so a stalled database shows up as the queueing it would cause
+ * instead of as fewer, faster operations. Without a target every worker runs
+ * operations back to back.
+ *
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class LoadGenerator {
+	private final int concurrency, durationSeconds;
+	private final double targetOpsPerSecond, readRatio;
+	private final LatencyHistogram reads = new LatencyHistogram(), writes = new LatencyHistogram();
+	private final AtomicLong errors = new AtomicLong();
+	private volatile String firstError;
+	private long elapsedNanos;
+
+	/**
+	 * Opens a worker's connection.
+	 */
+	interface ConnectionSource {
+		Connection open() throws SQLException;
+	}
+
+	/**
+	 * One read or write, committed by the worker after it returns.
+	 */
+	interface Operation {
+		void run(Connection connection) throws SQLException;
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param concurrency        number of worker threads and connections
+	 * @param durationSeconds    how long operations are started for
+	 * @param targetOpsPerSecond operations started per second across all workers,
+	 *                           0 for as many as the database takes
+	 * @param readRatio          share of operations that are reads, 0 to 1
+	 */
+	public LoadGenerator(int concurrency, int durationSeconds, double targetOpsPerSecond, double readRatio) {
+		this.concurrency = Math.max(1, concurrency);
+		this.durationSeconds = Math.max(1, durationSeconds);
+		this.targetOpsPerSecond = Math.max(0, targetOpsPerSecond);
+		this.readRatio = Math.min(1, Math.max(0, readRatio));
+	}
+
+	/**
+	 * Opens every worker's connection, then runs the load and waits for it to
+	 * finish.
+	 *
+	 * @param source opens the connection of each worker
+	 * @param read   the read operation
+	 * @param write  the write operation
+	 * @throws SQLException         if a connection could not be opened
+	 * @throws InterruptedException
+	 */
+	public void run(ConnectionSource source, Operation read, Operation write)
+			throws SQLException, InterruptedException {
+		ArrayList<Connection> connections = new ArrayList<Connection>();
+		AtomicInteger count = new AtomicInteger();
+		ExecutorService workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+			Thread thread = new Thread(runnable, "load-worker-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			for (int i = 0; i < concurrency; i++) {
+				connections.add(source.open());
+			}
+			long intervalNanos = targetOpsPerSecond > 0 ? (long) (1e9 * concurrency / targetOpsPerSecond) : 0;
+			long start = System.nanoTime(), end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+			ArrayList<Future<LatencyHistogram[]>> results = new ArrayList<Future<LatencyHistogram[]>>();
+			for (int i = 0; i < concurrency; i++) {
+				Connection connection = connections.get(i);
+				// stagger the workers' schedules so their operations are spread over each interval
+				long firstDue = start + intervalNanos * i / concurrency;
+				results.add(workers.submit(() -> work(connection, read, write, firstDue, intervalNanos, end)));
+			}
+			for (Future<LatencyHistogram[]> result : results) {
+				try {
+					LatencyHistogram[] histograms = result.get();
+					reads.add(histograms[0]);
+					writes.add(histograms[1]);
+				} catch (ExecutionException e) {
+					errors.incrementAndGet();
+					recordError(e.getCause());
+				}
+			}
+			elapsedNanos = System.nanoTime() - start;
+		} finally {
+			workers.shutdownNow();
+			for (Connection connection : connections) {
+				try {
+					connection.close();
+				} catch (SQLException e) {
+					System.out.println("     Could not close load connection... " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * The loop of one worker.
+	 *
+	 * @return the worker's read and write latencies
+	 */
+	private LatencyHistogram[] work(Connection connection, Operation read, Operation write, long firstDue,
+			long intervalNanos, long end) {
+		LatencyHistogram workerReads = new LatencyHistogram(), workerWrites = new LatencyHistogram();
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long due = firstDue;
+		while (!Thread.currentThread().isInterrupted()) {
+			long started;
+			if (intervalNanos > 0) {
+				if (due >= end) {
+					break;
+				}
+				long wait;
+				while ((wait = due - System.nanoTime()) > 0) {
+					LockSupport.parkNanos(wait);
+				}
+				started = due;
+				due += intervalNanos;
+			} else {
+				started = System.nanoTime();
+				if (started >= end) {
+					break;
+				}
+			}
+			boolean isRead = random.nextDouble() < readRatio;
+			try {
+				(isRead ? read : write).run(connection);
+				connection.commit();
+			} catch (SQLException e) {
+				errors.incrementAndGet();
+				recordError(e);
+				try {
+					connection.rollback();
+				} catch (SQLException rollbackFailure) {
+					// the next operation reports a connection that is no longer usable
+				}
+			}
+			(isRead ? workerReads : workerWrites).record(System.nanoTime() - started);
+		}
+		return new LatencyHistogram[] { workerReads, workerWrites };
+	}
+
+	private void recordError(Throwable e) {
+		if (firstError == null) {
+			firstError = String.valueOf(e.getMessage());
+		}
+	}
+
+	public LatencyHistogram getReads() {
+		return reads;
+	}
+
+	public LatencyHistogram getWrites() {
+		return writes;
+	}
+
+	/**
+	 * @return reads and writes together
+	 */
+	public LatencyHistogram getAll() {
+		LatencyHistogram all = new LatencyHistogram();
+		all.add(reads);
+		all.add(writes);
+		return all;
+	}
+
+	public long getErrors() {
+		return errors.get();
+	}
+
+	/**
+	 * @return the message of the first failed operation, or null
+	 */
+	public String getFirstError() {
+		return firstError;
+	}
+
+	/**
+	 * @return operations completed per second over the whole run
+	 */
+	public double getThroughput() {
+		return elapsedNanos == 0 ? 0 : (reads.getTotalCount() + writes.getTotalCount()) * 1e9 / elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%d worker(s) for %d s, %s: %.1f ops/s, %d read(s), %d write(s), %d error(s)",
+				concurrency, durationSeconds,
+				targetOpsPerSecond > 0 ? String.format("target %.1f ops/s", targetOpsPerSecond) : "unthrottled",
+				getThroughput(), reads.getTotalCount(), writes.getTotalCount(), getErrors()));
+		if (reads.getTotalCount() > 0) {
+			report.append("\n     Reads:  ").append(reads);
+		}
+		if (writes.getTotalCount() > 0) {
+			report.append("\n     Writes: ").append(writes);
+		}
+		if (firstError != null) {
+			report.append("\n     First error: ").append(firstError);
+		}
+		return report.toString();
+	}
+}
@@ -0,0 +1,99 @@
+package client;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LocalProcessServiceController object.
+ * 
+ * <P>
+ * Runs a stand-in executable for the Project service as a child process, so
+ * the suite can run on build agents without the Windows service installed.
+ * The service counts as running once the process is alive and, if a health
+ * port is configured, accepting connections on it.
+ * 
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class LocalProcessServiceController implements ServiceController {
+	// Shared by service name so a later test case can stop what an earlier one
+	// started
+	private static final ConcurrentHashMap<String, Process> processes = new ConcurrentHashMap<String, Process>();
+	private final String serviceName;
+	private final String[] command;
+	private final int healthPort;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param serviceName name used to keep track of the process
+	 * @param command     command line of the stand-in executable
+	 * @param healthPort  local port probed for readiness, or -1 for none
+	 */
+	public LocalProcessServiceController(String serviceName, String command, int healthPort) {
+		this.serviceName = serviceName;
+		this.command = (command == null || command.trim().isEmpty()) ? null : command.trim().split("\\s+");
+		this.healthPort = healthPort;
+	}
+
+	@Override
+	public void start() throws IOException {
+		Process process = processes.get(serviceName);
+		if (process != null && process.isAlive()) {
+			return;
+		}
+		if (command == null) {
+			throw new IOException(
+					"ServiceCommand must be set in the Test Data sheet to use the process service controller");
+		}
+		File output = new File(serviceName + "-stdout.log");
+		processes.put(serviceName, new ProcessBuilder(command).redirectErrorStream(true)
+				.redirectOutput(ProcessBuilder.Redirect.appendTo(output)).start());
+	}
+
+	@Override
+	public void stop() throws IOException {
+		Process process = processes.get(serviceName);
+		if (process != null) {
+			process.destroy();
+		}
+	}
+
+	@Override
+	public State status() throws IOException {
+		Process process = processes.get(serviceName);
+		if (process == null || !process.isAlive()) {
+			return State.STOPPED;
+		}
+		if (healthPort < 0) {
+			return State.RUNNING;
+		}
+		try (Socket socket = new Socket()) {
+			socket.connect(new InetSocketAddress("localhost", healthPort), 250);
+			return State.RUNNING;
+		} catch (IOException e) {
+			return State.START_PENDING;
+		}
+	}
+
+	/**
+	 * Waits on the process itself when stopping, killing it if it does not exit
+	 * within the timeout.
+	 */
+	@Override
+	public boolean awaitState(State target, long timeout, TimeUnit unit) throws IOException, InterruptedException {
+		Process process = processes.get(serviceName);
+		if (target == State.STOPPED && process != null) {
+			if (!process.waitFor(timeout, unit)) {
+				process.destroyForcibly().waitFor(timeout, unit);
+			}
+			processes.remove(serviceName, process);
+			return !process.isAlive();
+		}
+		return ServiceController.super.awaitState(target, timeout, unit);
+	}
+}
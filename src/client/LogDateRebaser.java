@@ -0,0 +1,292 @@
+package client;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * LogDateRebaser helper object.
+ *
+ * <P>
+ * Shifts the timestamps in canned logs so that the last one in the file lands
+ * on the current time, keeping the spacing between lines. The final timestamp
+ * is found by reading the file backwards from its end, and the file is then
+ * rewritten in a single streaming pass. Lines are handled as raw bytes and
+ * timestamps are read and written in place by the TimestampCodec, so every byte
+ * outside the timestamps, line endings included, is kept as is and no objects
+ * are created per line.
+ *
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class LogDateRebaser {
+	private static final int BLOCK_SIZE = 1 << 16;
+
+	private LogDateRebaser() {
+	}
+
+	/**
+	 * @param path a file path
+	 * @return true if the file is a log whose dates should be updated
+	 */
+	public static boolean isLogFile(Path path) {
+		String name = path.getFileName().toString();
+		return name.endsWith(".log") || name.endsWith(".dg") || name.endsWith(".rcp") || name.endsWith(".rct");
+	}
+
+	/**
+	 * @param path a file path
+	 * @return true if the file uses the agentProgramV3.log date format
+	 */
+	public static boolean isAgentLog(Path path) {
+		return path.getFileName().toString().endsWith("agentProgramV3.log");
+	}
+
+	/**
+	 * Copies a folder's contents, or a single file, into a destination folder,
+	 * rebasing log timestamps on the way so each log is read once and written
+	 * once. Logs are rendered from their compiled LogTemplate. Other files are
+	 * copied byte for byte.
+	 *
+	 * @param source                   folder or file to copy
+	 * @param destination              folder the source is copied into
+	 * @param preserveFileModifiedDate keeps the modified date of files that are
+	 *                                 not rebased
+	 * @param now                      the time the final timestamp of each log is
+	 *                                 moved to
+	 * @param parallelism              number of files copied at once
+	 * @return totals of the run
+	 * @throws IOException if the source could not be walked
+	 */
+	public static CopySummary copyAndRebaseAll(Path source, Path destination, boolean preserveFileModifiedDate,
+			LocalDateTime now, int parallelism) throws IOException {
+		return FixtureCopier.copy(source, destination, FixtureCopier.Mode.COPY, preserveFileModifiedDate,
+				parallelism, (file, target) -> isLogFile(file) && LogTemplate.render(file, target, isAgentLog(file), now));
+	}
+
+	/**
+	 * Writes a rebased copy of a log file.
+	 *
+	 * @param source the original log
+	 * @param target where the rebased log is written
+	 * @param agent  true if the log is a agentProgramV3.log
+	 * @param now    the time the final timestamp of the log is moved to
+	 * @return false if the log has no timestamps and nothing was written
+	 * @throws IOException
+	 */
+	public static boolean copyAndRebase(Path source, Path target, boolean agent, LocalDateTime now)
+			throws IOException {
+		long finalTimestamp = findFinalTimestamp(source, agent);
+		if (finalTimestamp == TimestampCodec.INVALID) {
+			return false;
+		}
+		try (InputStream in = Files.newInputStream(source);
+				OutputStream out = new BufferedOutputStream(Files.newOutputStream(target), BLOCK_SIZE)) {
+			rebase(in, out, agent, shiftSeconds(finalTimestamp, now));
+		}
+		return true;
+	}
+
+	/**
+	 * Copies a log from a stream, shifting each timestamp by the given offset.
+	 *
+	 * @param in           the original log
+	 * @param out          where the rebased log is written
+	 * @param agent        true if the log is a agentProgramV3.log
+	 * @param shiftSeconds seconds to add to every timestamp
+	 * @throws IOException
+	 */
+	public static void rebase(InputStream in, OutputStream out, boolean agent, long shiftSeconds)
+			throws IOException {
+		byte[] formatted = new byte[TimestampCodec.length(agent)];
+		scan(in, agent, new TimestampSink() {
+			@Override
+			public void literal(byte[] bytes, int offset, int length) throws IOException {
+				out.write(bytes, offset, length);
+			}
+
+			@Override
+			public void timestamp(long epochSeconds) throws IOException {
+				out.write(formatted, 0, TimestampCodec.format(epochSeconds + shiftSeconds, formatted, 0, agent));
+			}
+		});
+	}
+
+	/**
+	 * Receives a log split into the text between timestamps and the timestamps
+	 * themselves, in file order.
+	 */
+	interface TimestampSink {
+		void literal(byte[] bytes, int offset, int length) throws IOException;
+
+		/**
+		 * @param epochSeconds the timestamp as decoded by the TimestampCodec
+		 */
+		void timestamp(long epochSeconds) throws IOException;
+
+		default void end() throws IOException {
+		}
+	}
+
+	/**
+	 * Splits a log into literal text and timestamps. Only lines starting with a
+	 * timestamp, after leading whitespace, are looked at; on those, agentProgramV3
+	 * logs have their leading timestamp reported and other logs every timestamp in
+	 * the line.
+	 *
+	 * @param in    the log
+	 * @param agent true if the log is a agentProgramV3.log
+	 * @param sink  receives the pieces of the log
+	 * @throws IOException
+	 */
+	static void scan(InputStream in, boolean agent, TimestampSink sink) throws IOException {
+		int timestampLength = TimestampCodec.length(agent);
+		LineReader lines = new LineReader(in);
+		while (lines.next()) {
+			byte[] line = lines.line;
+			int start = skipWhitespace(line, 0, lines.length);
+			long timestamp = TimestampCodec.parse(line, start, lines.length, agent);
+			if (timestamp == TimestampCodec.INVALID) {
+				sink.literal(line, 0, lines.length);
+				continue;
+			}
+			int copied = 0;
+			while (true) {
+				sink.literal(line, copied, start - copied);
+				sink.timestamp(timestamp);
+				copied = start + timestampLength;
+				start = agent ? -1 : TimestampCodec.findIso(line, copied, lines.length);
+				if (start < 0) {
+					break;
+				}
+				timestamp = TimestampCodec.parse(line, start, lines.length, false);
+			}
+			sink.literal(line, copied, lines.length - copied);
+		}
+		sink.end();
+	}
+
+	/**
+	 * Finds the timestamp of the last timestamped line by reading the file
+	 * backwards in blocks from its end.
+	 *
+	 * @param logPath the log to search
+	 * @param agent   true if the log is a agentProgramV3.log
+	 * @return the final timestamp in epoch seconds, or TimestampCodec.INVALID if
+	 *         no line starts with one
+	 * @throws IOException
+	 */
+	public static long findFinalTimestamp(Path logPath, boolean agent) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(logPath.toFile(), "r")) {
+			long position = file.length();
+			byte[] block = new byte[BLOCK_SIZE];
+			int carry = 0;
+			while (position > 0) {
+				int blockLength = (int) Math.min(BLOCK_SIZE, position);
+				position -= blockLength;
+				if (blockLength + carry > block.length) { // a line longer than a block
+					byte[] grown = new byte[blockLength + carry];
+					System.arraycopy(block, 0, grown, 0, carry);
+					block = grown;
+				}
+				System.arraycopy(block, 0, block, blockLength, carry);
+				file.seek(position);
+				file.readFully(block, 0, blockLength);
+				int end = blockLength + carry;
+				for (int i = end - 1; i >= 0; i--) {
+					if (block[i] == '\n') {
+						long timestamp = leadingTimestamp(block, i + 1, end, agent);
+						if (timestamp != TimestampCodec.INVALID) {
+							return timestamp;
+						}
+						end = i;
+					}
+				}
+				// the first line of the block may continue in the previous block
+				carry = end;
+			}
+			return leadingTimestamp(block, 0, carry, agent);
+		}
+	}
+
+	/**
+	 * @param finalTimestamp the last timestamp of a log in epoch seconds
+	 * @param now            where that timestamp should end up
+	 * @return seconds to add to every timestamp of the log
+	 */
+	public static long shiftSeconds(long finalTimestamp, LocalDateTime now) {
+		return now.withNano(0).toEpochSecond(ZoneOffset.UTC) - finalTimestamp;
+	}
+
+	/**
+	 * @return the timestamp a line starts with, ignoring leading whitespace, or
+	 *         TimestampCodec.INVALID
+	 */
+	private static long leadingTimestamp(byte[] bytes, int start, int end, boolean agent) {
+		return TimestampCodec.parse(bytes, skipWhitespace(bytes, start, end), end, agent);
+	}
+
+	private static int skipWhitespace(byte[] bytes, int start, int end) {
+		while (start < end && (bytes[start] & 0xFF) <= ' ') {
+			start++;
+		}
+		return start;
+	}
+
+	/**
+	 * Reads lines as raw bytes, including their line terminator.
+	 */
+	private static final class LineReader {
+		private final InputStream in;
+		private final byte[] buffer = new byte[BLOCK_SIZE];
+		private int position, limit;
+		private byte[] line = new byte[256];
+		private int length;
+
+		private LineReader(InputStream in) {
+			this.in = in;
+		}
+
+		/**
+		 * Loads the next line into line/length.
+		 *
+		 * @return false at the end of the stream
+		 */
+		private boolean next() throws IOException {
+			length = 0;
+			while (true) {
+				if (position == limit) {
+					limit = Math.max(0, in.read(buffer, 0, buffer.length));
+					position = 0;
+					if (limit == 0) {
+						return length > 0;
+					}
+				}
+				int start = position;
+				while (position < limit && buffer[position] != '\n') {
+					position++;
+				}
+				boolean endOfLine = position < limit;
+				if (endOfLine) {
+					position++;
+				}
+				if (length + position - start > line.length) {
+					byte[] grown = new byte[Math.max(line.length * 2, length + position - start)];
+					System.arraycopy(line, 0, grown, 0, length);
+					line = grown;
+				}
+				System.arraycopy(buffer, start, line, length, position - start);
+				length += position - start;
+				if (endOfLine) {
+					return true;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,248 @@
+package client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * LogTemplate helper object.
+ *
+ * <P>
+ * Compiles a canned log once into a template of literal text and timestamp
+ * slots, each slot holding its offset in seconds from the final timestamp of
+ * the log. Rendering a template against the current time needs no scanning or
+ * date parsing. Templates are cached in a folder of their own, the
+ * <code>.logtemplates</code> folder of the working directory, named by the
+ * hash of their log's path, so fixture and archived folders never hold one.
+ * A template is recompiled when the log's size or modified date changes.
+ *
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class LogTemplate {
+	private static final Path CACHE_FOLDER = Paths.get(".logtemplates").toAbsolutePath();
+	private static final int MAGIC = 0x4C4F4754, VERSION = 1;
+	private static final byte LITERAL = 0, SLOT = 1, END = 2;
+	private static final byte ISO_FORMAT = 0, AGENT_FORMAT = 1;
+	private static final int CHUNK_SIZE = 1 << 16;
+
+	private LogTemplate() {
+	}
+
+	/**
+	 * @param source a canned log
+	 * @return where the template of the log is cached
+	 */
+	private static Path templatePath(Path source) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) { // every JVM has SHA-256
+			throw new IllegalStateException(e);
+		}
+		byte[] hash = digest.digest(source.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8));
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < 16; i++) {
+			name.append(String.format("%02x", hash[i]));
+		}
+		return CACHE_FOLDER.resolve(name.append('-').append(source.getFileName()).append(".tpl").toString());
+	}
+
+	/**
+	 * Compiles the template of a log ahead of rendering if it is missing or out
+	 * of date. A template that cannot be written is left to render, which then
+	 * rebases the log directly.
+	 *
+	 * @param source the canned log
+	 * @param agent  true if the log is a agentProgramV3.log
+	 */
+	public static void prepare(Path source, boolean agent) {
+		Path templatePath = templatePath(source);
+		try {
+			if (!isCurrent(templatePath, source)) {
+				compile(source, templatePath, agent);
+			}
+		} catch (IOException e) {
+			System.out.println("     Could not cache log template " + templatePath + ": " + e);
+		}
+	}
+
+	/**
+	 * Writes a rebased copy of a log by rendering its template, compiling the
+	 * template first if it is missing or out of date. Falls back to rebasing the
+	 * log directly when the template cannot be cached.
+	 *
+	 * @param source the canned log
+	 * @param target where the rebased log is written
+	 * @param agent  true if the log is a agentProgramV3.log
+	 * @param now    the time the final timestamp of the log is moved to
+	 * @return false if the log has no timestamps and nothing was written
+	 * @throws IOException
+	 */
+	public static boolean render(Path source, Path target, boolean agent, LocalDateTime now) throws IOException {
+		Path templatePath = templatePath(source);
+		if (!isCurrent(templatePath, source)) {
+			try {
+				compile(source, templatePath, agent);
+			} catch (IOException e) { // cache folder not writable, rebase without caching
+				System.out.println("     Could not cache log template " + templatePath + ": " + e);
+				return LogDateRebaser.copyAndRebase(source, target, agent, now);
+			}
+		}
+		long nowSeconds = now.withNano(0).toEpochSecond(ZoneOffset.UTC);
+		byte[] formatted = new byte[TimestampCodec.AGENT_LENGTH];
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(templatePath), CHUNK_SIZE))) {
+			readHeader(in);
+			if (!in.readBoolean()) {
+				return false;
+			}
+			try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target), CHUNK_SIZE)) {
+				byte[] buffer = new byte[CHUNK_SIZE];
+				for (byte tag = in.readByte(); tag != END; tag = in.readByte()) {
+					if (tag == LITERAL) {
+						int length = in.readInt();
+						in.readFully(buffer, 0, length);
+						out.write(buffer, 0, length);
+					} else {
+						long offset = in.readLong();
+						boolean agentFormat = in.readByte() == AGENT_FORMAT;
+						out.write(formatted, 0,
+								TimestampCodec.format(nowSeconds + offset, formatted, 0, agentFormat));
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Compiles a log into a template file.
+	 *
+	 * @param source       the canned log
+	 * @param templatePath where the template is written
+	 * @param agent        true if the log is a agentProgramV3.log
+	 * @throws IOException
+	 */
+	public static void compile(Path source, Path templatePath, boolean agent) throws IOException {
+		long finalTimestamp = LogDateRebaser.findFinalTimestamp(source, agent);
+		// a temp file of its own, as a stager and a test case or two slots can compile the same log at once
+		Files.createDirectories(templatePath.toAbsolutePath().getParent());
+		Path tempPath = Files.createTempFile(templatePath.toAbsolutePath().getParent(),
+				templatePath.getFileName().toString(), ".tmp");
+		try {
+			writeTemplate(source, tempPath, agent, finalTimestamp);
+			try {
+				Files.move(tempPath, templatePath, StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempPath, templatePath, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tempPath);
+		}
+	}
+
+	/**
+	 * Writes the template of a log to a file.
+	 */
+	private static void writeTemplate(Path source, Path tempPath, boolean agent, long finalTimestamp)
+			throws IOException {
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(tempPath), CHUNK_SIZE))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(Files.size(source));
+			out.writeLong(Files.getLastModifiedTime(source).toMillis());
+			out.writeBoolean(finalTimestamp != TimestampCodec.INVALID);
+			if (finalTimestamp != TimestampCodec.INVALID) {
+				try (InputStream in = Files.newInputStream(source)) {
+					LogDateRebaser.scan(in, agent, new LogDateRebaser.TimestampSink() {
+						private final byte[] pending = new byte[CHUNK_SIZE];
+						private int pendingLength;
+
+						@Override
+						public void literal(byte[] bytes, int offset, int length) throws IOException {
+							while (length > 0) {
+								if (pendingLength == pending.length) {
+									flush();
+								}
+								int count = Math.min(length, pending.length - pendingLength);
+								System.arraycopy(bytes, offset, pending, pendingLength, count);
+								pendingLength += count;
+								offset += count;
+								length -= count;
+							}
+						}
+
+						@Override
+						public void timestamp(long epochSeconds) throws IOException {
+							flush();
+							out.writeByte(SLOT);
+							out.writeLong(epochSeconds - finalTimestamp);
+							out.writeByte(agent ? AGENT_FORMAT : ISO_FORMAT);
+						}
+
+						private void flush() throws IOException {
+							if (pendingLength > 0) {
+								out.writeByte(LITERAL);
+								out.writeInt(pendingLength);
+								out.write(pending, 0, pendingLength);
+								pendingLength = 0;
+							}
+						}
+
+						@Override
+						public void end() throws IOException {
+							flush();
+						}
+					});
+				}
+				out.writeByte(END);
+			}
+		}
+	}
+
+	/**
+	 * @return true if the template exists and was compiled from the current
+	 *         version of the log
+	 */
+	private static boolean isCurrent(Path templatePath, Path source) throws IOException {
+		if (!Files.exists(templatePath)) {
+			return false;
+		}
+		try (DataInputStream in = new DataInputStream(Files.newInputStream(templatePath))) {
+			long[] header = readHeader(in);
+			return header[0] == Files.size(source) && header[1] == Files.getLastModifiedTime(source).toMillis();
+		} catch (IOException e) { // truncated or from another version, recompile it
+			return false;
+		}
+	}
+
+	/**
+	 * Reads and checks the fixed part of a template.
+	 *
+	 * @return the source size and modified date the template was compiled from
+	 */
+	private static long[] readHeader(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+			throw new EOFException("Not a log template of version " + VERSION);
+		}
+		return new long[] { in.readLong(), in.readLong() };
+	}
+}
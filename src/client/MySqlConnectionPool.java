@@ -0,0 +1,191 @@
+package client;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MySqlConnectionPool helper object.
+ *
+ * <P>
+ * Keeps MySQL connections open between test cases, one pool per server, port,
+ * database and user for the whole suite, so each DataPush row does not pay for
+ * a new TCP connection and login. A borrowed connection is checked with
+ * isValid before it is handed out and replaced if the server dropped it;
+ * closing it rolls back whatever was left uncommitted and returns it to the
+ * pool. Returned connections keep the driver's prepared statement cache, see
+ * TestBase.connectMySQL. Borrowing never waits: a connection is opened when
+ * none is idle, and a returned connection is closed when maxIdle are already
+ * idle.
+ *
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class MySqlConnectionPool {
+	private static final Map<String, MySqlConnectionPool> pools = new ConcurrentHashMap<String, MySqlConnectionPool>();
+	private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+	private final String name, serverName, databaseName, user, password;
+	private final int portNumber;
+	private final LinkedBlockingDeque<Connection> idle;
+	private final AtomicLong borrows = new AtomicLong(), reuses = new AtomicLong(), opens = new AtomicLong(),
+			discards = new AtomicLong(), borrowNanos = new AtomicLong(), maxBorrowNanos = new AtomicLong();
+
+	/**
+	 * Borrows a connection from the suite's pool for a database, creating the
+	 * pool on first use.
+	 *
+	 * @param serverName   MySQL server
+	 * @param portNumber   MySQL port
+	 * @param databaseName database to connect to
+	 * @param user         MySQL user
+	 * @param password     MySQL password
+	 * @param maxIdle      connections kept open while unused, fixed by the first
+	 *                     borrow from the pool
+	 * @return a connection with auto-commit off, returned to the pool by close
+	 * @throws SQLException if no connection could be opened
+	 */
+	public static Connection borrow(String serverName, int portNumber, String databaseName, String user,
+			String password, int maxIdle) throws SQLException {
+		String name = user + "@" + serverName + ":" + portNumber + "/" + databaseName;
+		return pools.computeIfAbsent(name,
+				key -> new MySqlConnectionPool(key, serverName, portNumber, databaseName, user, password, maxIdle))
+				.borrow();
+	}
+
+	/**
+	 * Closes every idle connection and prints the borrow statistics of each
+	 * pool. Called once at the end of the suite.
+	 */
+	public static void closeAll() {
+		for (MySqlConnectionPool pool : pools.values()) {
+			Connection connection;
+			while ((connection = pool.idle.poll()) != null) {
+				closeQuietly(connection);
+			}
+			System.out.println("MySQL connection pool " + pool.name + ": " + pool);
+		}
+		pools.clear();
+	}
+
+	private MySqlConnectionPool(String name, String serverName, int portNumber, String databaseName, String user,
+			String password, int maxIdle) {
+		this.name = name;
+		this.serverName = serverName;
+		this.portNumber = portNumber;
+		this.databaseName = databaseName;
+		this.user = user;
+		this.password = password;
+		idle = new LinkedBlockingDeque<Connection>(Math.max(1, maxIdle));
+	}
+
+	private Connection borrow() throws SQLException {
+		long started = System.nanoTime();
+		Connection physical;
+		while ((physical = idle.pollFirst()) != null) {
+			if (isUsable(physical)) {
+				reuses.incrementAndGet();
+				break;
+			}
+			discards.incrementAndGet();
+			closeQuietly(physical);
+		}
+		if (physical == null) {
+			physical = TestBase.connectMySQL(serverName, portNumber, databaseName, user, password);
+			opens.incrementAndGet();
+		}
+		long elapsed = System.nanoTime() - started;
+		borrows.incrementAndGet();
+		borrowNanos.addAndGet(elapsed);
+		maxBorrowNanos.accumulateAndGet(elapsed, Math::max);
+		return pooled(physical);
+	}
+
+	private static boolean isUsable(Connection connection) {
+		try {
+			return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Takes a connection back, unless it is broken or enough are idle already.
+	 */
+	private void giveBack(Connection physical) {
+		try {
+			if (physical.isClosed()) {
+				return;
+			}
+			if (!physical.getAutoCommit()) {
+				physical.rollback();
+			}
+		} catch (SQLException e) {
+			discards.incrementAndGet();
+			closeQuietly(physical);
+			return;
+		}
+		if (!idle.offerFirst(physical)) {
+			closeQuietly(physical);
+		}
+	}
+
+	/**
+	 * @return a connection that hands physical back to the pool when closed and
+	 *         cannot be used afterwards
+	 */
+	private Connection pooled(Connection physical) {
+		boolean[] closed = { false };
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, method, arguments) -> {
+					switch (method.getName()) {
+					case "close":
+						if (!closed[0]) {
+							closed[0] = true;
+							giveBack(physical);
+						}
+						return null;
+					case "isClosed":
+						return closed[0] || physical.isClosed();
+					case "equals":
+						return proxy == arguments[0];
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "toString":
+						return "Pooled " + physical;
+					default:
+						if (closed[0]) {
+							throw new SQLException("Connection was returned to the pool");
+						}
+						try {
+							return method.invoke(physical, arguments);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					}
+				});
+	}
+
+	private static void closeQuietly(Connection connection) {
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			System.out.println("     Could not close MySQL connection... " + e.getMessage());
+		}
+	}
+
+	@Override
+	public String toString() {
+		long count = borrows.get();
+		return String.format("%d borrow(s), %d reused, %d opened, %d discarded, borrow time avg %.2f ms, max %.2f ms",
+				count, reuses.get(), opens.get(), discards.get(),
+				count == 0 ? 0 : borrowNanos.get() / 1e6 / count,
+				TimeUnit.NANOSECONDS.toMicros(maxBorrowNanos.get()) / 1000.0);
+	}
+}
@@ -1,30 +1,40 @@
 package client;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
 
-public class OperationTest extends TestBase {
+public abstract class OperationTest extends TestBase {
 	protected final HashMap<String, String> allData;
-	private final String keySet[] = { "NodeId", "ObservationId", "DataPointId", "CollectionTimestamp",
+	private static final String keySet[] = { "NodeId", "ObservationId", "DataPointId", "CollectionTimestamp",
 			"ObservationHash", "ArchiveId", "StartLine", "EndArchive", "EndLine", "FileName", "Offset", "ContentsHash",
 			"ModificationTime", "Content", "AttributeId", "AttributeValue", "AttributeValueString", "PropertyId",
 			"PropertyValue" };
 	protected Connection SQLConnection;
-	protected Statement SQLStatement;
 	protected final String actionType;
 	private final String tableName;
 	protected final int numberOfRows;
+	protected final int sampleRows;
+	private final RowGenerator rowGenerator;
+	private final boolean dedicatedTestDatabase, assertionBatching;
+	/**
+	 * Set by the AssertionBatcher if this row's count is queried with others.
+	 */
+	AssertionBatcher.CountBatch countBatch;
+	private final QueryResultCache queryCache;
 
 	/**
 	 * Constructor
@@ -59,92 +69,374 @@ public class OperationTest extends TestBase {
 		} else {
 			numberOfRows = -1;
 		}
+		// 0 asserts the count only, which the database works out without sending rows
+		if (keyInHashMap(allData, "samplerows")) {
+			sampleRows = (int) Math.round(Double.parseDouble(allData.get("samplerows")));
+		} else {
+			sampleRows = keyInHashMap(testData, "selectsamplerows")
+					? (int) Math.round(Double.parseDouble(testData.get("selectsamplerows")))
+					: 0;
+		}
+		dedicatedTestDatabase = keyInHashMap(testData, "dedicatedtestdatabase")
+				&& testData.get("dedicatedtestdatabase").trim().toLowerCase().matches("true|yes");
+		assertionBatching = !keyInHashMap(testData, "disableassertionbatching");
+		queryCache = keyInHashMap(testData, "querycache")
+				? QueryResultCache.shared(keyInHashMap(testData, "querycachesize")
+						? (int) Math.round(Double.parseDouble(testData.get("querycachesize")))
+						: 256)
+				: null;
+		// cells like "seq:1" make every inserted row different, see RowGenerator
+		rowGenerator = "INSERT".equals(actionType)
+				? RowGenerator.of(columnValues(),
+						keyInHashMap(allData, "seed") ? Math.round(Double.parseDouble(allData.get("seed"))) : 0)
+				: null;
 	}
 
 	/**
-	 * Adds quotes to a String if it is necessary for a generated SQL statement
+	 * Runs the test case, running Project first if the row asks for it.
 	 * 
-	 * @param key
-	 * @return
+	 * @throws SQLException
+	 * @throws IOException
+	 * @throws InterruptedException
 	 */
-	private String quoteAdd(String key) {
-		ArrayList<String> quoteArray = new ArrayList<String>(Arrays.asList("ActionType", "DatabaseType", "TableName",
-				"DataPointId", "ObservationHash", "FileName", "Content", "AttributeValue", "AttributeValueString",
-				"PropertyValue", "LogSamplePath", "LogDestinationPath", "ModificationTime", "CollectionTimestamp"));
-		ArrayList<String> excludeForInsertArray = new ArrayList<String>(
-				Arrays.asList("StartArchiveCollectionTimestamp", "ModificationTime", "CollectionTimestamp"));
-		if (quoteArray.contains(key) && !(excludeForInsertArray.contains(key) && actionType.equals("INSERT"))) {
-			return "'" + allData.get(key.toLowerCase()) + "'";
-		}
-		return allData.get(key.toLowerCase());
+	public abstract void runAction() throws SQLException, IOException, InterruptedException;
+
+	/**
+	 * @return the spreadsheet row this test was built from
+	 */
+	HashMap<String, String> getRowData() {
+		return allData;
 	}
 
 	/**
-	 * Puts together a INSERT SQL Query for testing use.
-	 * 
-	 * @return
+	 * @return the row's values of the columns in keySet, in keySet order
 	 */
-	protected String concatInsert() {
-		String sqlQuery = "INSERT INTO " + tableName + "(";
+	LinkedHashMap<String, String> columnValues() {
+		LinkedHashMap<String, String> columns = new LinkedHashMap<String, String>();
 		for (String key : keySet) {
 			if (keyInHashMap(allData, key.toLowerCase())) {
-				sqlQuery += key + ", ";
+				columns.put(key, allData.get(key.toLowerCase()));
 			}
 		}
-		sqlQuery = sqlQuery.replaceAll(", $", ") ");
-		sqlQuery += "VALUES(";
-		for (String key : keySet) {
-			if (keyInHashMap(allData, key.toLowerCase())) {
-				sqlQuery += quoteAdd(key) + ",";
+		return columns;
+	}
+
+	/**
+	 * Prepares the statement of this row's action from its cached SqlTemplate and
+	 * binds the row's values to it, unless the row's INSERT is generated.
+	 * 
+	 * @param action       INSERT, SELECT, COUNT or CLEAR
+	 * @param databaseType mysql or sqlite
+	 * @param rows         times the row is repeated in an INSERT's VALUES list
+	 * @return the bound statement
+	 * @throws SQLException
+	 */
+	private PreparedStatement prepare(String action, String databaseType, int rows) throws SQLException {
+		return prepare(SQLConnection, action, databaseType, rows);
+	}
+
+	/**
+	 * Prepares the statement of this row's action on another connection, e.g. a
+	 * load worker's.
+	 */
+	private PreparedStatement prepare(Connection connection, String action, String databaseType, int rows)
+			throws SQLException {
+		LinkedHashMap<String, String> columns = columnValues();
+		SqlTemplate template = template(action, databaseType);
+		PreparedStatement statement = action.equals("SELECT")
+				? connection.prepareStatement(template.getSql(), ResultSet.TYPE_FORWARD_ONLY,
+						ResultSet.CONCUR_READ_ONLY)
+				: connection.prepareStatement(template.getSql(rows));
+		if (rowGenerator == null) {
+			template.bind(statement, columns, rows);
+		}
+		return statement;
+	}
+
+	/**
+	 * @return the cached SqlTemplate of this row's action
+	 */
+	private SqlTemplate template(String action, String databaseType) {
+		LinkedHashMap<String, String> columns = columnValues();
+		return SqlTemplate.of(action, tableName, databaseType,
+				rowGenerator != null ? rowGenerator.templateRow(columns) : columns);
+	}
+
+	/**
+	 * @return the cached SqlTemplate of this row's count
+	 */
+	SqlTemplate countTemplate(String databaseType) {
+		return template("COUNT", databaseType);
+	}
+
+	/**
+	 * Binds the generator's next rows to an INSERT before it is run or batched.
+	 * Statements of rows without a generator are bound once by prepare.
+	 */
+	private void bindGeneratedRows(PreparedStatement statement, SqlTemplate template,
+			LinkedHashMap<String, String> columns, int rows) throws SQLException {
+		if (rowGenerator != null) {
+			template.bind(statement, columns, rowGenerator, rows);
+		}
+	}
+
+	/**
+	 * Inserts numberOfRows copies of the row through a PreparedStatement, several
+	 * rows to a multi-row VALUES statement and several statements to a batch.
+	 * The "Batch Size" column sets the rows per batch and the optional "Commit
+	 * Interval" column the rows per commit.
+	 * 
+	 * @param databaseType mysql or sqlite
+	 * @return the number of rows the batch results confirm were inserted
+	 * @throws SQLException
+	 */
+	protected int batchInsert(String databaseType) throws SQLException {
+		int batchSize = Math.max(1, (int) Math.round(Double.parseDouble(allData.get("batchsize"))));
+		int commitInterval = keyInHashMap(allData, "commitinterval")
+				? Math.max(1, (int) Math.round(Double.parseDouble(allData.get("commitinterval"))))
+				: Integer.MAX_VALUE;
+		SqlTemplate template = template("INSERT", databaseType);
+		LinkedHashMap<String, String> columns = columnValues();
+		int parameters = template.getParameterCount();
+		// stay under the 999 bound parameters older SQLite builds allow per statement
+		int rowsPerStatement = Math.max(1, Math.min(batchSize, Math.min(500, 999 / Math.max(1, parameters))));
+		System.out.println("Inserting " + numberOfRows + " rows, " + rowsPerStatement + " per statement, "
+				+ batchSize + " per batch");
+		int fullStatements = numberOfRows / rowsPerStatement, leftoverRows = numberOfRows % rowsPerStatement;
+		int statementsPerBatch = Math.max(1, batchSize / rowsPerStatement);
+		int insertedRows = 0, uncommittedRows = 0;
+		try (PreparedStatement statement = fullStatements > 0 ? prepare("INSERT", databaseType, rowsPerStatement)
+				: null) {
+			for (int i = 1; i <= fullStatements; i++) {
+				bindGeneratedRows(statement, template, columns, rowsPerStatement);
+				statement.addBatch();
+				if (i % statementsPerBatch == 0 || i == fullStatements) {
+					int[] counts = statement.executeBatch();
+					insertedRows += confirmedRows(counts, rowsPerStatement);
+					uncommittedRows += counts.length * rowsPerStatement;
+					if (uncommittedRows >= commitInterval) {
+						SQLConnection.commit();
+						uncommittedRows = 0;
+					}
+				}
+			}
+		}
+		if (leftoverRows > 0) {
+			try (PreparedStatement statement = prepare("INSERT", databaseType, leftoverRows)) {
+				bindGeneratedRows(statement, template, columns, leftoverRows);
+				statement.addBatch();
+				insertedRows += confirmedRows(statement.executeBatch(), leftoverRows);
 			}
 		}
-		sqlQuery = sqlQuery.replaceAll(",$", ")");
-		return sqlQuery;
+		int mismatches = numberOfRows - insertedRows;
+		if (mismatches > 0) {
+			System.out.println(mismatches + " row(s) were not confirmed by the batch update counts");
+		}
+		return insertedRows;
 	}
 
 	/**
-	 * Puts together a INSERT SQL Query for testing use.
+	 * Checks the update count of every statement of an executed batch.
 	 * 
-	 * @param databaseType Used to see whether a mySQL or SQLite Database is used,
-	 *                     due to formatting differences between the two.
-	 * @return
+	 * @param counts           the batch results
+	 * @param rowsPerStatement rows each statement of the batch inserted
+	 * @return rows confirmed inserted
 	 */
-	protected String concatSelect(String databaseType) {
-		String equalsOperator = (databaseType.equals("mysql") ? " = " : " == ");
-		String sqlQuery = "SELECT * FROM " + tableName + " WHERE ";
-		for (String key : keySet) {
-			if (keyInHashMap(allData, key.toLowerCase())) {
-				// if (quoteAdd(key).contains("<->")) {
-				// String[] betweenArray = quoteAdd(key).split("<->", 2);
-				// sqlQuery += key + " BETWEEN (" + betweenArray[0] + " AND " + betweenArray[0]
-				// + ") AND ";
-				// } else {
-				sqlQuery += key + equalsOperator + quoteAdd(key) + " AND ";
-				// }
+	private int confirmedRows(int[] counts, int rowsPerStatement) {
+		int rows = 0;
+		for (int count : counts) {
+			if (count == rowsPerStatement || count == Statement.SUCCESS_NO_INFO) { // rewritten batches report no count
+				rows += rowsPerStatement;
+			} else {
+				System.out.println("Expected was: " + rowsPerStatement + " rows per statement... Actual was: " + count);
 			}
 		}
-		sqlQuery = sqlQuery.replaceAll("AND $", "");
-		sqlQuery = sqlQuery.replaceAll("WHERE $", "");
-		return sqlQuery;
+		return rows;
 	}
 
 	/**
-	 * Puts together a DELETE FROM SQL Query for testing use.
+	 * Lets the database count the matching rows, so no rows are sent back.
 	 * 
-	 * @param databaseType Used to see whether a mySQL or SQLite Database is used,
-	 *                     due to access restriction differences between the two
-	 * @return
-	 */
-	protected String concatClear(String databaseType) {
-		String sqlQuery = "DELETE FROM " + tableName;
-		if (databaseType.equals("mysql") && keyInHashMap(allData, "nodeid")) {
-			sqlQuery += " WHERE NodeId = " + (int) Math.round(Double.parseDouble(allData.get("nodeid")));
-		} else if (databaseType.equals("mysql")) {
+	 * @param databaseType mysql or sqlite
+	 * @return the number of matching rows
+	 * @throws SQLException
+	 */
+	private long countSelect(String databaseType) throws SQLException {
+		return cachedQuery(countTemplate(databaseType).getSql(), columnValues().toString(), () -> {
+			try (PreparedStatement statement = prepare("COUNT", databaseType, 1);
+					ResultSet queryResult = statement.executeQuery()) {
+				queryResult.next();
+				return new long[] { queryResult.getLong(1) };
+			}
+		})[0];
+	}
+
+	/**
+	 * Runs a query through the suite's QueryResultCache if the test data turns
+	 * it on with "querycache", so the result is reused while the database does
+	 * not change.
+	 * 
+	 * @param sql    the statement text
+	 * @param values the values bound to it
+	 * @param query  runs the query on this test's connection
+	 * @return the query's result
+	 * @throws SQLException
+	 */
+	long[] cachedQuery(String sql, String values, QueryResultCache.Query query) throws SQLException {
+		String fingerprint = queryCache == null ? null : getContentFingerprint();
+		if (fingerprint == null) {
+			return query.run();
+		}
+		return queryCache.get(getDatabaseKey(), fingerprint, sql, values, query);
+	}
+
+	/**
+	 * @return a value that changes whenever the data this row queries changes,
+	 *         or null if this test type cannot tell, which turns off the
+	 *         QueryResultCache for it
+	 * @throws SQLException
+	 */
+	protected String getContentFingerprint() throws SQLException {
+		return null;
+	}
+
+	/**
+	 * Streams the matching rows through a forward-only result set, printing the
+	 * first sampleRows of them and counting the rest.
+	 * 
+	 * @param databaseType mysql or sqlite; MySQL only streams rows one by one
+	 *                     with a fetch size of Integer.MIN_VALUE
+	 * @return the number of matching rows
+	 * @throws SQLException
+	 */
+	private long streamSelect(String databaseType) throws SQLException {
+		try (PreparedStatement statement = prepare("SELECT", databaseType, 1)) {
+			statement.setFetchSize(databaseType.equals("mysql") ? Integer.MIN_VALUE : 1000);
+			try (ResultSet queryResult = statement.executeQuery()) {
+				System.out.println("SQL rows returned, first " + sampleRows + ": ");
+				ResultSetMetaData metadata = queryResult.getMetaData();
+				int columnCount = metadata.getColumnCount();
+				StringBuilder line = new StringBuilder();
+				for (int i = 1; i <= columnCount; i++) {
+					line.append("| ").append(metadata.getColumnName(i)).append(" |");
+				}
+				System.out.println(line);
+				long countOfResults = 0;
+				while (queryResult.next()) {
+					if (++countOfResults <= sampleRows) {
+						line.setLength(0);
+						for (int i = 1; i <= columnCount; i++) {
+							line.append("| ").append(queryResult.getString(i)).append(" |");
+						}
+						System.out.println(line);
+					}
+				}
+				return countOfResults;
+			}
+		}
+	}
+
+	/**
+	 * Deletes the rows of a CLEAR row. On MySQL the "Clear Mode" column can ask
+	 * for "chunked", deleting the node's rows a primary key range at a time with
+	 * a commit after each ("Clear Chunk Size" keys, 10000 if left out), or
+	 * "truncate", emptying the whole table, which is only allowed for rows
+	 * without a NodeId when the test data sets "dedicatedtestdatabase" to true
+	 * or yes and the connection is on the row's database. Otherwise the rows go
+	 * in one DELETE.
+	 * 
+	 * @param databaseType mysql or sqlite
+	 * @return number of rows deleted
+	 * @throws SQLException
+	 */
+	private long clear(String databaseType) throws SQLException {
+		String clearMode = keyInHashMap(allData, "clearmode") ? allData.get("clearmode").trim().toLowerCase() : "";
+		if (databaseType.equals("mysql") && clearMode.equals("truncate")) {
+			if (keyInHashMap(allData, "nodeid")) {
+				fail("ActionType: CLEAR with Clear Mode truncate clears every node, remove the nodeid. Aborting.");
+			}
+			if (!dedicatedTestDatabase) {
+				fail("ActionType: CLEAR with Clear Mode truncate needs dedicatedtestdatabase set to yes in the test data. Aborting.");
+			}
+			return TableClearer.truncate(SQLConnection, getDatabaseName(), tableName);
+		}
+		if (databaseType.equals("mysql") && !keyInHashMap(allData, "nodeid")) {
 			fail("ActionType: CLEAR must specify a nodeid in MySql related tests. Aborting.");
 		}
-		return sqlQuery;
+		if (databaseType.equals("mysql") && clearMode.equals("chunked")) {
+			int chunkSize = keyInHashMap(allData, "clearchunksize")
+					? Math.max(1, (int) Math.round(Double.parseDouble(allData.get("clearchunksize"))))
+					: 10000;
+			return TableClearer.deleteInChunks(SQLConnection, tableName,
+					Math.round(Double.parseDouble(allData.get("nodeid"))), chunkSize);
+		}
+		if (!clearMode.isEmpty()) {
+			System.out.println("Clear Mode " + clearMode + " does not apply to " + databaseType
+					+ ", deleting in one statement");
+		}
+		try (PreparedStatement statement = prepare("CLEAR", databaseType, 1)) {
+			return statement.executeUpdate();
+		}
 	}
 
+	/**
+	 * Drives the table with concurrent reads and writes of the row for a while
+	 * and reports their latencies. The "Concurrency" column sets the number of
+	 * workers, each on its own connection from openConnection, "Duration Seconds"
+	 * how long they run, "Target Ops Per Second" the rate they keep to (as fast
+	 * as possible if left out) and "Read Ratio" the share of reads, 1 if left
+	 * out. A read counts the rows matching the row's columns, a write inserts the
+	 * row once. The row passes if no operation failed and, if the "Max P99
+	 * Millis" column is set, the 99th percentile latency stayed within it.
+	 * 
+	 * @param databaseType mysql or sqlite
+	 * @throws SQLException
+	 * @throws InterruptedException
+	 */
+	private void runLoad(String databaseType) throws SQLException, InterruptedException {
+		int concurrency = keyInHashMap(allData, "concurrency")
+				? (int) Math.round(Double.parseDouble(allData.get("concurrency")))
+				: 1;
+		int durationSeconds = keyInHashMap(allData, "durationseconds")
+				? (int) Math.round(Double.parseDouble(allData.get("durationseconds")))
+				: 10;
+		double targetOpsPerSecond = keyInHashMap(allData, "targetopspersecond")
+				? Double.parseDouble(allData.get("targetopspersecond"))
+				: 0;
+		double readRatio = keyInHashMap(allData, "readratio") ? Double.parseDouble(allData.get("readratio")) : 1;
+		LoadGenerator load = new LoadGenerator(concurrency, durationSeconds, targetOpsPerSecond, readRatio);
+		System.out.println("Running load against " + tableName + "...");
+		load.run(this::openConnection, connection -> {
+			try (PreparedStatement statement = prepare(connection, "COUNT", databaseType, 1);
+					ResultSet queryResult = statement.executeQuery()) {
+				queryResult.next();
+			}
+		}, connection -> {
+			try (PreparedStatement statement = prepare(connection, "INSERT", databaseType, 1)) {
+				statement.executeUpdate();
+			}
+		});
+		System.out.println("     " + load);
+		pass = load.getErrors() == 0;
+		assertEquals("Failed load operations", 0, load.getErrors());
+		if (keyInHashMap(allData, "maxp99millis")) {
+			double p99Millis = load.getAll().getValueAtPercentile(99) / 1000000.0;
+			double maxP99Millis = Double.parseDouble(allData.get("maxp99millis"));
+			pass = p99Millis <= maxP99Millis;
+			System.out.println("Expected p99 within: " + maxP99Millis + " ms... Actual was: " + p99Millis + " ms");
+			assertTrue("p99 latency over " + maxP99Millis + " ms", pass);
+		}
+	}
+
+	/**
+	 * Opens a new connection to the database this test type runs against, for
+	 * the test itself or one of its load workers.
+	 * 
+	 * @return a connection with auto-commit off
+	 * @throws SQLException
+	 */
+	protected abstract Connection openConnection() throws SQLException;
+
 	/**
 	 * Called by runAction from its children to run a SQL Query on a SQL Database
 	 * and make assertions for testing purposes.
@@ -157,16 +449,24 @@ public class OperationTest extends TestBase {
 	 */
 	protected void innerRunAction(String databaseType) throws SQLException, IOException, InterruptedException {
 		try {
-			SQLStatement = SQLConnection.createStatement();
 			System.out.println("\n" + "Running Project Client: Test Case " + this.getTestCaseNumber() + ", "
 					+ this.getActionType() + ", " + this.getTableName() + ": ");
 
-			if (actionType.equals("INSERT")) {
-				String sqlQuery = concatInsert();
+			if (actionType.equals("INSERT") && keyInHashMap(allData, "batchsize")) {
+				int insertedRows = batchInsert(databaseType);
+				pass = (numberOfRows == insertedRows);
+				System.out.println("Expected was: " + numberOfRows + "... Actual was: " + insertedRows);
+				assertEquals(numberOfRows, insertedRows);
+			} else if (actionType.equals("INSERT")) {
 				ArrayList<Integer> returnVals = new ArrayList<Integer>();
-				for (int i = 0; i < numberOfRows; i++) {
-					int returnVal = SQLStatement.executeUpdate(sqlQuery);
-					returnVals.add(returnVal);
+				SqlTemplate template = template("INSERT", databaseType);
+				LinkedHashMap<String, String> columns = columnValues();
+				try (PreparedStatement statement = prepare("INSERT", databaseType, 1)) {
+					for (int i = 0; i < numberOfRows; i++) {
+						bindGeneratedRows(statement, template, columns, 1);
+						int returnVal = statement.executeUpdate();
+						returnVals.add(returnVal);
+					}
 				}
 				for (int i = 0; i < numberOfRows; i++) {
 					pass = (1 == (int) returnVals.get(i));
@@ -175,46 +475,105 @@ public class OperationTest extends TestBase {
 				}
 			}
 			if (actionType.equals("SELECT")) {
-				String sqlQuery = concatSelect(databaseType);
-				ResultSet queryResult = SQLStatement.executeQuery(sqlQuery);
-				System.out.println("SQL rows returned: ");
-				ResultSetMetaData metadata = queryResult.getMetaData();
-				int columnCount = metadata.getColumnCount();
-				for (int i = 1; i <= columnCount; i++) {
-					System.out.print("| " + metadata.getColumnName(i) + " |");
+				long countOfResults;
+				if (sampleRows > 0) {
+					countOfResults = streamSelect(databaseType);
+				} else if (countBatch != null && !ranOwnScenarioRun()) {
+					countOfResults = countBatch.count(this, SQLConnection, databaseType);
+				} else {
+					countOfResults = countSelect(databaseType);
 				}
-				System.out.println("");
-				int countOfResults = 0;
-				while (queryResult.next()) {
-					++countOfResults;
-					for (int i = 1; i <= columnCount; i++) {
-						System.out.print("| " + queryResult.getString(i) + " |");
-					}
-					System.out.println("");
-				}
-				queryResult.close();
 				pass = (numberOfRows == countOfResults);
 				System.out.println("\nExpected was: " + numberOfRows + "... Actual was: " + countOfResults);
 				assertEquals(numberOfRows, countOfResults);
 			}
 			if (actionType.equals("CLEAR")) {
-				String sqlQuery = concatClear(databaseType);
-				int returnVal = SQLStatement.executeUpdate(sqlQuery);
-				pass = (0 == returnVal);
-				System.out.println("Deleted: " + numberOfRows);
+				long started = System.nanoTime();
+				long deletedRows = clear(databaseType);
+				pass = (0 == deletedRows);
+				System.out.println("Deleted: " + deletedRows + " rows in "
+						+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " ms");
+			}
+			if (actionType.equals("LOAD")) {
+				runLoad(databaseType);
 			}
 		} catch (SQLException e) {
 			pass = false;
 			System.out.println(e.getMessage());
 			throw new SQLException(e);
 		} finally {
-			SQLStatement.close();
 			SQLConnection.commit();
 			SQLConnection.close();
 			endLocalDateTime = LocalDateTime.now();
 		}
 	}
 
+	/**
+	 * Rows with the same key can share one Project run, see ScenarioPlanner.
+	 * 
+	 * @return the key of the Project run this row needs, or null if it does not
+	 *         run Project
+	 */
+	protected String getScenarioKey() {
+		return null;
+	}
+
+	/**
+	 * A follower whose leader did not complete its Project run runs Project
+	 * itself, so counts its batch took before that run are stale for it.
+	 * 
+	 * @return true if this row was planned to reuse its scenario leader's run
+	 *         but could not
+	 */
+	private boolean ranOwnScenarioRun() {
+		return isScenarioFollower() && !scenarioLeader.scenarioRunCompleted;
+	}
+
+	/**
+	 * @return the database this test type runs rows against, e.g. its file or
+	 *         server, or null if its rows cannot share queries
+	 */
+	protected String getDatabaseKey() {
+		return null;
+	}
+
+	/**
+	 * @return the name of the database this test's rows run against, or null if
+	 *         this test type does not name one
+	 */
+	protected String getDatabaseName() {
+		return null;
+	}
+
+	/**
+	 * Rows with the same key can be counted by one query, see AssertionBatcher.
+	 * 
+	 * @return the database and table of a count-only SELECT row, or null for any
+	 *         other row
+	 */
+	String getCountBatchKey() {
+		if (!assertionBatching || !"SELECT".equals(actionType) || sampleRows > 0 || !keyInHashMap(allData, "include")
+				|| getDatabaseKey() == null) {
+			return null;
+		}
+		return getDatabaseKey() + "|" + tableName;
+	}
+
+	/**
+	 * @return true if this row writes to the database it runs against
+	 */
+	protected boolean mutatesScenario() {
+		return keyInHashMap(allData, "include") && ("INSERT".equals(actionType) || "CLEAR".equals(actionType)
+				|| "LOAD".equals(actionType));
+	}
+
+	/**
+	 * @return true if this row must get a Project run of its own
+	 */
+	protected boolean isIsolatedRun() {
+		return keyInHashMap(allData, "isolatedrun");
+	}
+
 	public String getActionType() {
 		return actionType;
 	}
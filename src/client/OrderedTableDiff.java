@@ -0,0 +1,330 @@
+package client;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * OrderedTableDiff helper object.
+ *
+ * <P>
+ * Compares a table of two SQLite databases in one pass. Both sides are read
+ * once, sorted by ObservationId, DataPointId and CollectionTimestamp, and
+ * merged on those keys like a merge join: a key only the expected side has is
+ * a missing row, a key only the actual side has is an extra row, and a key
+ * both have is compared column by column. Rows therefore line up by what they
+ * are rather than by the order the database happened to return them in, and
+ * only the rows of one key are held at a time however large the tables are.
+ * Columns are read by position, and blobs are compared byte for byte.
+ *
+ * <P>
+ * A key can have several rows, e.g. one ObservationAttribute row per
+ * attribute, so the rows of a key are matched as a group: both sides' rows are
+ * sorted by every compared column, identical rows are paired off, and the rows
+ * left over are paired in that order and compared column by column, with any
+ * rows still left over reported as missing or extra.
+ *
+ * <P>
+ * Keys are compared the way SQLite sorts them, NULL before numbers before text
+ * before blobs, so the merge follows the ORDER BY of both queries.
+ *
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class OrderedTableDiff {
+	/**
+	 * The columns rows are sorted and matched by, first in every query.
+	 */
+	static final String[] KEY_COLUMNS = { "ObservationId", "DataPointId", "CollectionTimestamp" };
+	private static final int TIMESTAMP = 2;
+
+	enum Kind {
+		MISSING, EXTRA, CHANGED
+	}
+
+	/**
+	 * Receives the differences found.
+	 */
+	interface Listener {
+		/**
+		 * @param kind              what kind of difference
+		 * @param rowNumber         the row's position in the sorted expected table,
+		 *                          or in the actual table for an extra row
+		 * @param column            the column that differs, or "Missing row" or
+		 *                          "Extra row"
+		 * @param expected          the expected value, or the row's key for a
+		 *                          missing row, null for an extra row
+		 * @param expectedTimestamp the expected row's CollectionTimestamp
+		 * @param actual            the actual value, or the row's key for an
+		 *                          extra row, null for a missing row
+		 * @param actualTimestamp   the actual row's CollectionTimestamp
+		 */
+		void difference(Kind kind, long rowNumber, String column, String expected, String expectedTimestamp,
+				String actual, String actualTimestamp);
+	}
+
+	private final String tableName;
+	private final String[] columnNames, columnTypes;
+	private int differences;
+	private boolean limitReached;
+
+	/**
+	 * Constructor
+	 *
+	 * @param tableName the table to compare
+	 * @param columns   the columns to compare as {name, type} with type int,
+	 *                  string or blob; must include the key columns
+	 */
+	public OrderedTableDiff(String tableName, String[][] columns) {
+		this.tableName = tableName;
+		ArrayList<String[]> ordered = new ArrayList<String[]>();
+		for (String key : KEY_COLUMNS) {
+			for (String[] column : columns) {
+				if (column[0].equals(key)) {
+					ordered.add(column);
+				}
+			}
+		}
+		if (ordered.size() != KEY_COLUMNS.length) {
+			throw new IllegalArgumentException(tableName + " columns must include " + Arrays.toString(KEY_COLUMNS));
+		}
+		for (String[] column : columns) {
+			if (!Arrays.asList(KEY_COLUMNS).contains(column[0])) {
+				ordered.add(column);
+			}
+		}
+		columnNames = new String[ordered.size()];
+		columnTypes = new String[ordered.size()];
+		for (int i = 0; i < columnNames.length; i++) {
+			columnNames[i] = ordered.get(i)[0];
+			columnTypes[i] = ordered.get(i)[1];
+		}
+	}
+
+	/**
+	 * Compares the table of both databases.
+	 *
+	 * @param expected the database with the expected rows
+	 * @param actual   the database the service wrote
+	 * @param limit    number of differences after which the comparison stops
+	 * @param listener receives every difference
+	 * @return number of differences found
+	 * @throws SQLException
+	 */
+	public int compare(Connection expected, Connection actual, int limit, Listener listener) throws SQLException {
+		differences = 0;
+		limitReached = false;
+		String sql = "SELECT " + String.join(", ", columnNames) + " FROM " + tableName + " ORDER BY "
+				+ String.join(", ", KEY_COLUMNS);
+		try (Statement expectedStatement = expected.createStatement();
+				Statement actualStatement = actual.createStatement();
+				ResultSet expectedRows = expectedStatement.executeQuery(sql);
+				ResultSet actualRows = actualStatement.executeQuery(sql)) {
+			Object[] expectedRow = read(expectedRows), actualRow = read(actualRows);
+			ArrayList<Object[]> expectedGroup = new ArrayList<Object[]>(), actualGroup = new ArrayList<Object[]>();
+			long expectedNumber = 1, actualNumber = 1;
+			while ((expectedRow != null || actualRow != null) && !limitReached) {
+				Object[] key = actualRow == null
+						|| (expectedRow != null && compareKeys(expectedRow, actualRow) <= 0) ? expectedRow : actualRow;
+				expectedGroup.clear();
+				actualGroup.clear();
+				for (; expectedRow != null && compareKeys(expectedRow, key) == 0; expectedRow = read(expectedRows)) {
+					expectedGroup.add(expectedRow);
+				}
+				for (; actualRow != null && compareKeys(actualRow, key) == 0; actualRow = read(actualRows)) {
+					actualGroup.add(actualRow);
+				}
+				compareGroup(listener, limit, expectedGroup, expectedNumber, actualGroup, actualNumber);
+				expectedNumber += expectedGroup.size();
+				actualNumber += actualGroup.size();
+			}
+		}
+		return differences;
+	}
+
+	/**
+	 * Matches the rows of one key on both sides, see the class comment.
+	 * 
+	 * @param expectedNumber row number of the first row of expectedGroup
+	 * @param actualNumber   row number of the first row of actualGroup
+	 */
+	private void compareGroup(Listener listener, int limit, ArrayList<Object[]> expectedGroup, long expectedNumber,
+			ArrayList<Object[]> actualGroup, long actualNumber) {
+		expectedGroup.sort(OrderedTableDiff::compareRows);
+		actualGroup.sort(OrderedTableDiff::compareRows);
+		ArrayList<Integer> expectedLeft = new ArrayList<Integer>(), actualLeft = new ArrayList<Integer>();
+		int e = 0, a = 0;
+		while (e < expectedGroup.size() || a < actualGroup.size()) {
+			int order = e == expectedGroup.size() ? 1
+					: a == actualGroup.size() ? -1 : compareRows(expectedGroup.get(e), actualGroup.get(a));
+			if (order < 0) {
+				expectedLeft.add(e++);
+			} else if (order > 0) {
+				actualLeft.add(a++);
+			} else {
+				e++;
+				a++;
+			}
+		}
+		int paired = Math.min(expectedLeft.size(), actualLeft.size());
+		for (int k = 0; k < paired && !limitReached; k++) {
+			Object[] expectedRow = expectedGroup.get(expectedLeft.get(k)), actualRow = actualGroup.get(actualLeft.get(k));
+			for (int i = KEY_COLUMNS.length; i < columnNames.length && !limitReached; i++) {
+				if (!sameValue(expectedRow[i], actualRow[i])) {
+					report(listener, limit, Kind.CHANGED, expectedNumber + expectedLeft.get(k), columnNames[i], i,
+							expectedRow, actualRow);
+				}
+			}
+		}
+		for (int k = paired; k < expectedLeft.size() && !limitReached; k++) {
+			report(listener, limit, Kind.MISSING, expectedNumber + expectedLeft.get(k), "Missing row", null,
+					expectedGroup.get(expectedLeft.get(k)), null);
+		}
+		for (int k = paired; k < actualLeft.size() && !limitReached; k++) {
+			report(listener, limit, Kind.EXTRA, actualNumber + actualLeft.get(k), "Extra row", null, null,
+					actualGroup.get(actualLeft.get(k)));
+		}
+	}
+
+	/**
+	 * @return true if the last comparison stopped at its limit
+	 */
+	public boolean isLimitReached() {
+		return limitReached;
+	}
+
+	private void report(Listener listener, int limit, Kind kind, long rowNumber, String column, Integer index,
+			Object[] expectedRow, Object[] actualRow) {
+		String expectedValue = expectedRow == null ? null
+				: index == null ? key(expectedRow) : display(expectedRow[index]);
+		String actualValue = actualRow == null ? null : index == null ? key(actualRow) : display(actualRow[index]);
+		listener.difference(kind, rowNumber, column, expectedValue,
+				expectedRow == null ? null : display(expectedRow[TIMESTAMP]), actualValue,
+				actualRow == null ? null : display(actualRow[TIMESTAMP]));
+		if (++differences >= limit) {
+			limitReached = true;
+		}
+	}
+
+	/**
+	 * Reads the next row.
+	 *
+	 * @return the row's values, or null if there are no more rows
+	 */
+	private Object[] read(ResultSet rows) throws SQLException {
+		if (!rows.next()) {
+			return null;
+		}
+		Object[] row = new Object[columnNames.length];
+		for (int i = 0; i < row.length; i++) {
+			if (i < KEY_COLUMNS.length) {
+				row[i] = rows.getObject(i + 1); // as stored, to sort like SQLite
+			} else if (columnTypes[i].equals("int")) {
+				long value = rows.getLong(i + 1);
+				row[i] = rows.wasNull() ? null : Long.valueOf(value);
+			} else if (columnTypes[i].equals("blob")) {
+				row[i] = rows.getBytes(i + 1);
+			} else {
+				row[i] = rows.getString(i + 1);
+			}
+		}
+		return row;
+	}
+
+	/**
+	 * Orders the rows of one key by every column, so identical rows sort alike.
+	 */
+	private static int compareRows(Object[] x, Object[] y) {
+		for (int i = KEY_COLUMNS.length; i < x.length; i++) {
+			int order = compareValues(x[i], y[i]);
+			if (order != 0) {
+				return order;
+			}
+		}
+		return 0;
+	}
+
+	private static int compareKeys(Object[] expectedRow, Object[] actualRow) {
+		for (int i = 0; i < KEY_COLUMNS.length; i++) {
+			int order = compareValues(expectedRow[i], actualRow[i]);
+			if (order != 0) {
+				return order;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Orders values as SQLite's ORDER BY does with the BINARY collation.
+	 */
+	private static int compareValues(Object a, Object b) {
+		int classOrder = Integer.compare(storageClass(a), storageClass(b));
+		if (classOrder != 0 || a == null) {
+			return classOrder;
+		}
+		if (a instanceof Number) {
+			Number x = (Number) a, y = (Number) b;
+			if ((x instanceof Double || x instanceof Float) || (y instanceof Double || y instanceof Float)) {
+				return Double.compare(x.doubleValue(), y.doubleValue());
+			}
+			return Long.compare(x.longValue(), y.longValue());
+		}
+		if (a instanceof byte[]) {
+			byte[] x = (byte[]) a, y = (byte[]) b;
+			for (int i = 0; i < Math.min(x.length, y.length); i++) {
+				if (x[i] != y[i]) {
+					return Integer.compare(x[i] & 0xff, y[i] & 0xff);
+				}
+			}
+			return Integer.compare(x.length, y.length);
+		}
+		// UTF-8 byte order, which SQLite compares text by, is code point order
+		String x = a.toString(), y = b.toString();
+		int i = 0, j = 0;
+		while (i < x.length() && j < y.length()) {
+			int cx = x.codePointAt(i), cy = y.codePointAt(j);
+			if (cx != cy) {
+				return Integer.compare(cx, cy);
+			}
+			i += Character.charCount(cx);
+			j += Character.charCount(cy);
+		}
+		return Boolean.compare(i < x.length(), j < y.length());
+	}
+
+	private static int storageClass(Object value) {
+		if (value == null) {
+			return 0;
+		}
+		if (value instanceof Number) {
+			return 1;
+		}
+		return value instanceof byte[] ? 3 : 2;
+	}
+
+	private static boolean sameValue(Object a, Object b) {
+		if (a instanceof byte[] && b instanceof byte[]) {
+			return Arrays.equals((byte[]) a, (byte[]) b);
+		}
+		return a == null ? b == null : a.equals(b);
+	}
+
+	private static String key(Object[] row) {
+		return "ObservationId " + display(row[0]) + ", DataPointId " + display(row[1]);
+	}
+
+	private static String display(Object value) {
+		if (value instanceof byte[]) {
+			byte[] bytes = (byte[]) value;
+			StringBuilder hex = new StringBuilder("BLOB ").append(bytes.length).append(" bytes ");
+			for (int i = 0; i < Math.min(16, bytes.length); i++) {
+				hex.append(String.format("%02x", bytes[i]));
+			}
+			return hex.append(bytes.length > 16 ? "..." : "").toString();
+		}
+		return String.valueOf(value);
+	}
+}
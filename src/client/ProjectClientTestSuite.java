@@ -6,6 +6,9 @@ import java.io.InputStreamReader;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.junit.jupiter.api.AfterAll;
@@ -19,6 +22,7 @@ public class ProjectClientTestSuite {
 	public static ArrayList<SQLiteCompareTest> SQLiteCompareTests;
 	public static ArrayList<DataPushTest> dataPushTests;
 	public static ArrayList<DataCollectionTest> purgeTests;
+	public static SandboxPool sandboxPool;
 
 	public static void adminCheck() throws IllegalAccessException {
 		try {
@@ -38,19 +42,77 @@ public class ProjectClientTestSuite {
 		}
 	}
 
+	/**
+	 * Starts staging the fixtures of the next test that runs Project itself, so
+	 * they are prepared while the current test runs. Tests reusing a scenario
+	 * leader's run are skipped over.
+	 * 
+	 * @param tests   the tests of a factory, in run order
+	 * @param current the test about to run
+	 */
+	private static void stageNext(ArrayList<? extends TestBase> tests, TestBase current) {
+		if (current.isScenarioFollower()) {
+			return; // the next run was staged by this scenario's leader
+		}
+		for (int next = tests.indexOf(current) + 1; next < tests.size(); next++) {
+			if (!tests.get(next).isScenarioFollower()) {
+				tests.get(next).stageFixtures();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Schedules the tests of a factory onto the sandbox slots, each test
+	 * reporting its own result when it is done.
+	 * 
+	 * @param type    name of the test type in the test names
+	 * @param tests   the tests of a factory, in run order
+	 * @param factory rebuilds a test for a slot from its row and the slot's data
+	 * @return a DynamicTest per test waiting for its outcome
+	 */
+	private static <T extends OperationTest> Stream<DynamicTest> runInSandboxes(String type, ArrayList<T> tests,
+			BiFunction<HashMap<String, String>, HashMap<String, String>, T> factory) {
+		ArrayList<String> names = new ArrayList<String>();
+		for (T test : tests) {
+			names.add(type + ": Test Case " + test.getTestCaseNumber() + ", " + test.getActionType() + ", "
+					+ test.getTableName() + ": ");
+		}
+		ArrayList<CompletableFuture<Void>> results = sandboxPool.schedule(tests, factory);
+		return IntStream.range(0, names.size())
+				.mapToObj(i -> DynamicTest.dynamicTest(names.get(i), () -> SandboxPool.await(results.get(i))));
+	}
+
+	private static boolean keyInTestData(String key) {
+		return testData.get(key) != null && !testData.get(key).isEmpty();
+	}
+
 	@BeforeAll
 	public static void setUp() throws SQLException, IOException, IllegalAccessException {
 		adminCheck();
 		//KPITest.kpiFileEdit();
 		testData = ExcelHandler.getTestData();
+		ArrayList<HashMap<String, String>> sandboxSlots = ExcelHandler.getSandboxSlots(testData);
+		if (sandboxSlots.size() > 1) {
+			sandboxPool = new SandboxPool(sandboxSlots);
+			System.out.println("Running test cases on " + sandboxPool.size() + " sandbox slots.");
+		}
 		System.out.println("SetUp() completed.");
 	}
 
 	@TestFactory
 	Stream<DynamicTest> dataCollectionTestFactory() throws SQLException, IOException {
 		dataCollectTests = ExcelHandler.getDataCollectionTests(testData);
+		if (!keyInTestData("disablescenariogrouping")) {
+			ScenarioPlanner.plan(dataCollectTests);
+		}
+		AssertionBatcher.plan(dataCollectTests);
+		if (sandboxPool != null) {
+			return runInSandboxes("DataCollection", dataCollectTests, DataCollectionTest::new);
+		}
 		return dataCollectTests.stream().map(dataCollectTest -> DynamicTest.dynamicTest("DataCollection: Test Case " + dataCollectTest.getTestCaseNumber()
 				+ ", " + dataCollectTest.getActionType() + ", " + dataCollectTest.getTableName() + ": ", () -> {
+					stageNext(dataCollectTests, dataCollectTest);
 					dataCollectTest.runAction();
 				}));
 	}
@@ -60,6 +122,7 @@ public class ProjectClientTestSuite {
 		SQLiteCompareTests = ExcelHandler.getSQLiteCompareTests(testData);
 		return SQLiteCompareTests.stream().map(sqliteCompareTest -> DynamicTest.dynamicTest("SQLite Compare: Test Case "
 				+ sqliteCompareTest.getTestCaseNumber() + ", " + sqliteCompareTest.getScenarioName(), () -> {
+					stageNext(SQLiteCompareTests, sqliteCompareTest);
 					sqliteCompareTest.runAction();
 				}));
 	}
@@ -67,8 +130,16 @@ public class ProjectClientTestSuite {
 	@TestFactory
 	Stream<DynamicTest> dataPushTestFactory() throws SQLException, IOException {
 		dataPushTests = ExcelHandler.getDataPushTests(testData);
+		if (!keyInTestData("disablescenariogrouping")) {
+			ScenarioPlanner.plan(dataPushTests);
+		}
+		AssertionBatcher.plan(dataPushTests);
+		if (sandboxPool != null) {
+			return runInSandboxes("DataPush", dataPushTests, DataPushTest::new);
+		}
 		return dataPushTests.stream().map(dataPushTest -> DynamicTest.dynamicTest("DataPush: Test Case " + dataPushTest.getTestCaseNumber() + ", "
 				+ dataPushTest.getActionType() + ", " + dataPushTest.getTableName() + ": ", () -> {
+					stageNext(dataPushTests, dataPushTest);
 					dataPushTest.runAction();
 				}));
 	}
@@ -79,16 +150,25 @@ public class ProjectClientTestSuite {
 		return purgeTests.stream()
 				.map(purgeTest -> DynamicTest.dynamicTest("Purge: Test Case " + purgeTest.getTestCaseNumber() + ", "
 						+ purgeTest.getActionType() + ", " + purgeTest.getTableName() + ": ", () -> {
+							stageNext(purgeTests, purgeTest);
 							purgeTest.runAction();
 						}));
 	}
 
 	@AfterAll
-	public static void tearDown() throws IOException {
+	public static void tearDown() throws IOException, InterruptedException {
 		ExcelHandler.operationTestResultsToExcel(dataCollectTests, "Log Test");
 		ExcelHandler.SQLiteCompareTestResultsToExcel(SQLiteCompareTests);
 		ExcelHandler.operationTestResultsToExcel(dataPushTests, "DataPush Test");
   		ExcelHandler.operationTestResultsToExcel(purgeTests, "Purge Test");
+		ArchivePipeline.awaitAndReport();
+		FixtureStager.discardAll();
+		FolderReaper.awaitAndReport();
+		if (sandboxPool != null) {
+			sandboxPool.shutdown();
+		}
+		QueryResultCache.report();
+		MySqlConnectionPool.closeAll();
 		System.out.println("Test completed, connections closed.");
 	}
 }
@@ -0,0 +1,191 @@
+package client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * QueryResultCache helper object.
+ *
+ * <P>
+ * Keeps the counts of SELECT assertions for the whole suite, so a test case
+ * that runs the same query as an earlier one against a database that has not
+ * changed in between gets the earlier result without querying. Entries are
+ * keyed by the database, its content fingerprint, the statement text with its
+ * whitespace normalized and the bound values; any change to the database gives
+ * a new fingerprint, so stale entries are never read and age out of the cache,
+ * which evicts the least recently used entry beyond its size.
+ *
+ * <P>
+ * A SQLite database is fingerprinted from its file header's change counter and
+ * the size and modification time of the file and its WAL, whose header changes
+ * whenever the WAL is restarted, all without opening the database. A MySQL
+ * table is fingerprinted with CHECKSUM TABLE ... QUICK, which reads the live
+ * checksum of a table created with CHECKSUM=1 and returns nothing for any
+ * other table rather than reading it, so queries on MySQL tables without a
+ * live checksum are not cached.
+ *
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class QueryResultCache {
+	private static QueryResultCache shared;
+
+	private final LinkedHashMap<String, Entry> entries;
+	private final int capacity;
+	private long hits, misses, evictions, savedNanos;
+
+	/**
+	 * Runs a query the cache does not hold the result of.
+	 */
+	interface Query {
+		long[] run() throws SQLException;
+	}
+
+	private static class Entry {
+		private final long[] result;
+		private final long nanos;
+
+		private Entry(long[] result, long nanos) {
+			this.result = result;
+			this.nanos = nanos;
+		}
+	}
+
+	/**
+	 * @param maxEntries size of the suite's cache, fixed by the first call
+	 * @return the suite's cache
+	 */
+	public static synchronized QueryResultCache shared(int maxEntries) {
+		if (shared == null) {
+			shared = new QueryResultCache(maxEntries);
+		}
+		return shared;
+	}
+
+	/**
+	 * Prints the statistics of the suite's cache, if it was used. Called once at
+	 * the end of the suite.
+	 */
+	public static synchronized void report() {
+		if (shared != null) {
+			System.out.println("Query result cache: " + shared);
+		}
+	}
+
+	private QueryResultCache(int maxEntries) {
+		capacity = Math.max(1, maxEntries);
+		entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				if (size() > capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cached result of a query, running it if it is not cached.
+	 *
+	 * @param database    which database the query runs against
+	 * @param fingerprint the database's content fingerprint
+	 * @param sql         the statement text
+	 * @param values      the values bound to the statement, in order
+	 * @param query       runs the query
+	 * @return the query's result
+	 * @throws SQLException
+	 */
+	public long[] get(String database, String fingerprint, String sql, String values, Query query)
+			throws SQLException {
+		String key = database + "\n" + fingerprint + "\n" + sql.trim().replaceAll("\\s+", " ") + "\n" + values;
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (entry != null) {
+				hits++;
+				savedNanos += entry.nanos;
+				System.out.println("     Query result cache hit, " + entry.nanos / 1000000 + " ms saved");
+				return entry.result.clone();
+			}
+			misses++;
+		}
+		// not holding the lock while the query runs, a concurrent miss only runs it twice
+		long started = System.nanoTime();
+		long[] result = query.run();
+		long nanos = System.nanoTime() - started;
+		synchronized (this) {
+			entries.put(key, new Entry(result.clone(), nanos));
+		}
+		return result;
+	}
+
+	/**
+	 * @param path the SQLite database file
+	 * @return the content fingerprint of the database
+	 * @throws SQLException if the file cannot be read
+	 */
+	public static String sqliteFingerprint(String path) throws SQLException {
+		StringBuilder fingerprint = new StringBuilder();
+		try {
+			File database = new File(path);
+			fingerprint.append(database.length()).append(':').append(database.lastModified()).append(':')
+					.append(readHeader(database, 24, 4)); // file change counter
+			File wal = new File(path + "-wal");
+			if (wal.exists()) { // checkpoint sequence and salts, new whenever the WAL restarts
+				fingerprint.append(":wal:").append(wal.length()).append(':').append(wal.lastModified()).append(':')
+						.append(readHeader(wal, 12, 12));
+			}
+		} catch (IOException e) {
+			throw new SQLException("Could not fingerprint " + path, e);
+		}
+		return fingerprint.toString();
+	}
+
+	/**
+	 * @param connection a connection to the MySQL database
+	 * @param tableName  the table queried
+	 * @return the live checksum of the table, or null if it has none
+	 * @throws SQLException
+	 */
+	public static String mysqlFingerprint(Connection connection, String tableName) throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet result = statement.executeQuery("CHECKSUM TABLE " + tableName + " QUICK")) {
+			return result.next() ? result.getString("Checksum") : null;
+		}
+	}
+
+	/**
+	 * @return bytes of a file's header in hex, or "" if the file is shorter
+	 */
+	private static String readHeader(File file, int offset, int length) throws IOException {
+		try (RandomAccessFile header = new RandomAccessFile(file, "r")) {
+			if (header.length() < offset + length) {
+				return "";
+			}
+			byte[] bytes = new byte[length];
+			header.seek(offset);
+			header.readFully(bytes);
+			StringBuilder hex = new StringBuilder();
+			for (byte b : bytes) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%d hit(s), %d miss(es), %d eviction(s), %d of %d entries used, %.1f s of queries saved",
+				hits, misses, evictions, entries.size(), capacity, savedNanos / 1e9);
+	}
+}
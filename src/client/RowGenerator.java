@@ -0,0 +1,244 @@
+package client;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * RowGenerator helper object.
+ *
+ * <P>
+ * Makes the rows of an INSERT distinct. A column whose cell holds a generator
+ * spec instead of a value gets a new value for every inserted row:
+ * <ul>
+ * <li>seq:start[,step] - start, start + step, ...</li>
+ * <li>time:start[,stepMillis] - epoch milliseconds from start, given in
+ * milliseconds or as a UTC date-time such as 2024-01-01T00:00:00</li>
+ * <li>range:low,high - uniformly random whole numbers from low to high</li>
+ * <li>card:count[,start] - random whole numbers from start, count different
+ * values at most</li>
+ * <li>hash:bytes - random hex strings of that many bytes</li>
+ * </ul>
+ * The other columns keep their literal values. Random values come from one
+ * seeded SplittableRandom, so the same row and seed insert the same data.
+ * Values are kept as primitives and reused buffers and bound straight into the
+ * insert's PreparedStatement batches, so no rows are built up in memory however
+ * many are inserted.
+ *
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class RowGenerator {
+	private final Map<String, Column> columns = new HashMap<String, Column>();
+	private final SplittableRandom random;
+	private long rowNumber = -1;
+
+	private enum Kind {
+		SEQ, TIME, RANGE, CARD, HASH
+	}
+
+	/**
+	 * @param row  the row's column values
+	 * @param seed seed of the random values
+	 * @return a generator for the row, or null if no column holds a spec
+	 */
+	public static RowGenerator of(LinkedHashMap<String, String> row, long seed) {
+		RowGenerator generator = new RowGenerator(seed);
+		for (Map.Entry<String, String> column : row.entrySet()) {
+			Kind kind = kind(column.getValue());
+			if (kind != null) {
+				generator.columns.put(column.getKey(), new Column(kind,
+						column.getValue().substring(column.getValue().indexOf(':') + 1), column.getKey()));
+			}
+		}
+		return generator.columns.isEmpty() ? null : generator;
+	}
+
+	private RowGenerator(long seed) {
+		random = new SplittableRandom(seed);
+	}
+
+	/**
+	 * @param row the row's column values
+	 * @return the row with a placeholder value in each generated column, for
+	 *         building its SqlTemplate
+	 */
+	public LinkedHashMap<String, String> templateRow(LinkedHashMap<String, String> row) {
+		LinkedHashMap<String, String> template = new LinkedHashMap<String, String>(row);
+		for (String column : columns.keySet()) {
+			template.put(column, "0");
+		}
+		return template;
+	}
+
+	/**
+	 * Moves on to the values of the next row.
+	 */
+	public void nextRow() {
+		rowNumber++;
+		for (Column column : columns.values()) {
+			column.next(random, rowNumber);
+		}
+	}
+
+	/**
+	 * Binds the current row's value of a column if it is generated.
+	 *
+	 * @param statement the insert statement
+	 * @param index     the parameter index to bind
+	 * @param column    the column the parameter is for
+	 * @return false if the column is not generated and was left unbound
+	 * @throws SQLException
+	 */
+	public boolean bind(PreparedStatement statement, int index, String column) throws SQLException {
+		Column generated = columns.get(column);
+		if (generated == null) {
+			return false;
+		}
+		generated.bind(statement, index);
+		return true;
+	}
+
+	/**
+	 * @return number of rows generated so far
+	 */
+	public long getRows() {
+		return rowNumber + 1;
+	}
+
+	/**
+	 * @return the kind of generator a cell's spec asks for, or null if the cell is
+	 *         a plain value
+	 */
+	private static Kind kind(String value) {
+		int colon = value == null ? -1 : value.indexOf(':');
+		if (colon <= 0) {
+			return null;
+		}
+		switch (value.substring(0, colon).trim().toLowerCase()) {
+		case "seq":
+			return Kind.SEQ;
+		case "time":
+			return Kind.TIME;
+		case "range":
+			return Kind.RANGE;
+		case "card":
+			return Kind.CARD;
+		case "hash":
+			return Kind.HASH;
+		default: // e.g. a literal date-time, which has colons of its own
+			return null;
+		}
+	}
+
+	/**
+	 * The state of one generated column.
+	 */
+	private static class Column {
+		private static final char[] HEX = "0123456789abcdef".toCharArray();
+		private final Kind kind;
+		private final long first, second;
+		private final byte[] bytes;
+		private final char[] hex;
+		private long value;
+
+		Column(Kind kind, String spec, String name) {
+			this.kind = kind;
+			String[] parts = spec.split(",");
+			try {
+				switch (kind) {
+				case SEQ:
+					first = parseLong(parts[0]);
+					second = parts.length > 1 ? parseLong(parts[1]) : 1;
+					break;
+				case TIME:
+					first = parseTime(parts[0]);
+					second = parts.length > 1 ? parseLong(parts[1]) : 1000;
+					break;
+				case RANGE:
+					first = parseLong(parts[0]);
+					second = parseLong(parts[1]);
+					if (second < first) {
+						throw new IllegalArgumentException("high is below low");
+					}
+					break;
+				case CARD:
+					first = parseLong(parts[0]);
+					second = parts.length > 1 ? parseLong(parts[1]) : 0;
+					if (first < 1) {
+						throw new IllegalArgumentException("count must be at least 1");
+					}
+					break;
+				default:
+					first = parseLong(parts[0]);
+					second = 0;
+					if (first < 1) {
+						throw new IllegalArgumentException("bytes must be at least 1");
+					}
+				}
+			} catch (RuntimeException e) { // also a missing part
+				throw new IllegalArgumentException(
+						"Invalid generator for column " + name + ": " + kind.name().toLowerCase() + ":" + spec, e);
+			}
+			bytes = kind == Kind.HASH ? new byte[(int) first] : null;
+			hex = kind == Kind.HASH ? new char[(int) first * 2] : null;
+		}
+
+		void next(SplittableRandom random, long rowNumber) {
+			switch (kind) {
+			case SEQ:
+			case TIME:
+				value = first + rowNumber * second;
+				break;
+			case RANGE:
+				value = random.nextLong(first, second + 1);
+				break;
+			case CARD:
+				value = second + random.nextLong(first);
+				break;
+			case HASH:
+				for (int i = 0; i < bytes.length; i += 8) {
+					long randomBits = random.nextLong();
+					for (int j = i; j < Math.min(bytes.length, i + 8); j++, randomBits >>>= 8) {
+						bytes[j] = (byte) randomBits;
+					}
+				}
+				for (int i = 0; i < bytes.length; i++) {
+					hex[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+					hex[2 * i + 1] = HEX[bytes[i] & 0xf];
+				}
+				break;
+			}
+		}
+
+		void bind(PreparedStatement statement, int index) throws SQLException {
+			if (kind == Kind.HASH) {
+				statement.setString(index, new String(hex));
+			} else {
+				statement.setLong(index, value);
+			}
+		}
+
+		private static long parseLong(String value) {
+			return Math.round(Double.parseDouble(value.trim()));
+		}
+
+		private static long parseTime(String value) {
+			try {
+				return parseLong(value);
+			} catch (NumberFormatException e) {
+				try {
+					return LocalDateTime.parse(value.trim().replace(' ', 'T')).toInstant(ZoneOffset.UTC).toEpochMilli();
+				} catch (DateTimeParseException notADate) {
+					throw new IllegalArgumentException("not a number or date-time: " + value, notADate);
+				}
+			}
+		}
+	}
+}
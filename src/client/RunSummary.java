@@ -0,0 +1,87 @@
+package client;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RunSummary data model object.
+ * 
+ * <P>
+ * What every parallel file run reports: elapsed time and the files that
+ * failed, kept per path. Subclasses add their own totals. Safe to update from
+ * several worker threads.
+ * 
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public abstract class RunSummary {
+	private final Map<Path, Exception> failures = new ConcurrentHashMap<Path, Exception>();
+	private final long startNanos = System.nanoTime();
+	private final String action, pastAction;
+	private long elapsedMillis;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param action     what was done to a file, e.g. "archive"
+	 * @param pastAction the same in the past tense, e.g. "archived"
+	 */
+	protected RunSummary(String action, String pastAction) {
+		this.action = action;
+		this.pastAction = pastAction;
+	}
+
+	/**
+	 * Records a file that could not be processed.
+	 */
+	void addFailure(Path path, Exception e) {
+		failures.put(path, e);
+	}
+
+	/**
+	 * Stops the clock on the run.
+	 */
+	void finish() {
+		elapsedMillis = (System.nanoTime() - startNanos) / 1000000;
+	}
+
+	/**
+	 * Prints every failure and throws if there were any.
+	 * 
+	 * @throws IOException with the first failure as cause and the rest
+	 *                     suppressed
+	 */
+	public void throwIfFailed() throws IOException {
+		if (failures.isEmpty()) {
+			return;
+		}
+		IOException error = null;
+		for (Map.Entry<Path, Exception> failure : failures.entrySet()) {
+			System.out.println("ERROR! Could not " + action + "... " + failure.getKey() + ": " + failure.getValue());
+			if (error == null) {
+				error = new IOException(failures.size() + " file(s) could not be " + pastAction, failure.getValue());
+			} else {
+				error.addSuppressed(failure.getValue());
+			}
+		}
+		throw error;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public ArrayList<Path> getFailedPaths() {
+		return new ArrayList<Path>(failures.keySet());
+	}
+
+	/**
+	 * @return ", n failed" if files failed, for the end of toString
+	 */
+	protected String failureText() {
+		return failures.isEmpty() ? "" : ", " + failures.size() + " failed";
+	}
+}
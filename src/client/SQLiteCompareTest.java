@@ -10,6 +10,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import org.apache.poi.ss.usermodel.*;
 
@@ -47,6 +48,8 @@ public class SQLiteCompareTest extends TestBase {
 			mcmLogFolderPath };
 	private final String archiveDest;
 	private final String[] pathsToArchive = { sourcePath + "Logs", agentProgramCachePath, projectClientLogPath };
+	private final boolean inMemoryExpected;
+	private final int compareDiffLimit;
 
 	/**
 	 * Constructor
@@ -62,6 +65,18 @@ public class SQLiteCompareTest extends TestBase {
 		archiveDest = workingDirectory + "\\TestArchive\\SqLiteDbCompare - Test Case " + testCaseNumber + " "
 				+ scenarioName + " " + startLocalDateTime;
 		sourcePath = testData.get("logsourcefilepart1") + "\\" + scenarioName + "\\";
+		inMemoryExpected = keyInHashMap(testData, "inmemorycompare");
+		compareDiffLimit = keyInHashMap(testData, "comparedifflimit")
+				? Math.max(1, (int) Math.round(Double.parseDouble(testData.get("comparedifflimit"))))
+				: 1000;
+	}
+
+	/**
+	 * Stages this test's fixtures ahead of time.
+	 */
+	@Override
+	public void stageFixtures() {
+		stageFixtures(copyFrom, copyTo, false);
 	}
 
 	/**
@@ -75,18 +90,19 @@ public class SQLiteCompareTest extends TestBase {
 	 */
 	public void runAction() throws SQLException, IOException, InterruptedException {
 		startLocalDateTime = LocalDateTime.now();
-		expectedConnection = connectSQLite(sourcePath + "\\SQLite Files\\project.sqlite");
+		// the fixture is only read; copy it into memory if the test data asks for it
+		expectedConnection = connectSQLite(sourcePath + "\\SQLite Files\\project.sqlite",
+				inMemoryExpected ? SQLiteProfile.IN_MEMORY_SNAPSHOT : SQLiteProfile.READ_ONLY);
 		expectedStatement = expectedConnection.createStatement();
 		performProjectAction(waitMinutesProjectClientDataCollection, pathsToClean, copyFrom, copyTo,
 				archiveDest + " " + startLocalDateTime.toString().replaceAll(":","-"), pathsToArchive, false);
 
-		actualConnection = connectSQLite(agentProgramCachePath + "\\project.sqlite");
+		// the service is stopped by now, so its database is not written to any more
+		actualConnection = connectSQLite(agentProgramCachePath + "\\project.sqlite", SQLiteProfile.READ_ONLY);
 		actualStatement = actualConnection.createStatement();
 
-		ResultSet expectedResults;
-		ResultSet actualResults;
-		int expectedCount;
-		int actualCount;
+		long expectedCount;
+		long actualCount;
 		boolean countPass = true;
 		Workbook workbook = null;
 		Row row;
@@ -134,17 +150,8 @@ public class SQLiteCompareTest extends TestBase {
 			}
 
 			for (int i = 0; i < 3; i++) {
-				expectedCount = 0;
-				actualCount = 0;
-
-				expectedResults = expectedStatement.executeQuery("SELECT * FROM " + tableNames[i]);
-				actualResults = actualStatement.executeQuery("SELECT * FROM " + tableNames[i]);
-				while (expectedResults.next()) {
-					expectedCount++;
-				}
-				while (actualResults.next()) {
-					actualCount++;
-				}
+				expectedCount = count(expectedStatement, tableNames[i]);
+				actualCount = count(actualStatement, tableNames[i]);
 				row = sheet.createRow(rownum++);
 				cellnum = 0;
 				row.createCell(cellnum++).setCellValue(tableNames[i]);
@@ -157,7 +164,6 @@ public class SQLiteCompareTest extends TestBase {
 				}
 			}
 
-			int counter;
 			row = sheet.createRow(rownum++);
 			cellnum = 0;
 			cell = row.createCell(cellnum++);
@@ -172,79 +178,29 @@ public class SQLiteCompareTest extends TestBase {
 				cell.setCellValue(dataTestHeaders[i]);
 				cell.setCellStyle(titleStyle);
 			}
-			for (int i = 0; i < 3; i++) {
-				counter = 1;
-				expectedResults = expectedStatement.executeQuery("SELECT * FROM " + tableNames[i]);
-				actualResults = actualStatement.executeQuery("SELECT * FROM " + tableNames[i]);
-				if (tableCountPass[i]) {
-					while (expectedResults.next() && actualResults.next()) {
-						for (String column[] : tableColumns[i]) {
-							if (column[1].equals("int")) {
-								if (expectedResults.getInt(column[0]) != actualResults.getInt(column[0])) {
-									row = sheet.createRow(rownum++);
-									cellnum = 0;
-									row.createCell(cellnum++).setCellValue(tableNames[i]);
-									row.createCell(cellnum++).setCellValue(counter);
-									row.createCell(cellnum++).setCellValue(column[0]);
-									row.createCell(cellnum++).setCellValue(expectedResults.getString(column[0]));
-									row.createCell(cellnum++)
-											.setCellValue(expectedResults.getString("CollectionTimestamp"));
-									row.createCell(cellnum++).setCellValue(actualResults.getString(column[0]));
-									row.createCell(cellnum++)
-											.setCellValue(actualResults.getString("CollectionTimestamp"));
-									pass = false;
-								}
-							}
-							if (column[1].equals("string")) {
-								if (!expectedResults.getString(column[0]).equals(actualResults.getString(column[0]))) {
-									row = sheet.createRow(rownum++);
-									cellnum = 0;
-									row.createCell(cellnum++).setCellValue(tableNames[i]);
-									row.createCell(cellnum++).setCellValue(counter);
-									row.createCell(cellnum++).setCellValue(column[0]);
-									row.createCell(cellnum++).setCellValue(expectedResults.getString(column[0]));
-									row.createCell(cellnum++)
-											.setCellValue(expectedResults.getString("CollectionTimestamp"));
-									row.createCell(cellnum++).setCellValue(actualResults.getString(column[0]));
-									row.createCell(cellnum++)
-											.setCellValue(actualResults.getString("CollectionTimestamp"));
-									pass = false;
-								}
-							}
-							if (column[1].equals("blob")) {
-//							 System.out.println(results[i][0].getBlob(column[0])); 
-//							 if (!(results0.getBlob(column[0]).length() ==
-//							 (results1.getBlob(column[0]).length()))){ 
-//								 System.out.println("FAIL at: "
-//							 + tableNames[i] + " " + column[0] + ", " + results0.getBlob(column[0]) +
-//							 " DOES NOT EQUAL " + results1.getBlob(column[0])); dataPass= false; }
-								row = sheet.createRow(rownum++);
-								cellnum = 0;
-								row.createCell(cellnum++).setCellValue(tableNames[i]);
-								row.createCell(cellnum++).setCellValue(counter);
-								row.createCell(cellnum++).setCellValue(column[0]);
-								row.createCell(cellnum++).setCellValue("BLOB");
-								row.createCell(cellnum++)
-										.setCellValue(expectedResults.getString("CollectionTimestamp"));
-								row.createCell(cellnum++).setCellValue("BLOB");
-								row.createCell(cellnum++).setCellValue(actualResults.getString("CollectionTimestamp"));
-								row.createCell(cellnum++)
-										.setCellValue("Blobs are not supported, please do a manual check here");
-							}
-						}
-						counter++;
-					}
-				} else {
+			// rows are matched by key, so a table whose count failed still shows which rows differ
+			int diffsLeft = compareDiffLimit;
+			for (int i = 0; i < 3 && diffsLeft > 0; i++) {
+				String tableName = tableNames[i];
+				ArrayList<String[]> differences = new ArrayList<String[]>();
+				OrderedTableDiff diff = new OrderedTableDiff(tableName, tableColumns[i]);
+				diffsLeft -= diff.compare(expectedConnection, actualConnection, diffsLeft,
+						(kind, rowNumber, column, expected, expectedTimestamp, actual, actualTimestamp) -> differences
+								.add(new String[] { tableName, String.valueOf(rowNumber), column, expected,
+										expectedTimestamp, actual, actualTimestamp }));
+				for (String[] difference : differences) {
 					row = sheet.createRow(rownum++);
 					cellnum = 0;
-					row.createCell(cellnum++).setCellValue(tableNames[i]);
-					row.createCell(cellnum++);
-					row.createCell(cellnum++);
-					row.createCell(cellnum++);
-					row.createCell(cellnum++);
-					row.createCell(cellnum++);
-					row.createCell(cellnum++);
-					row.createCell(cellnum++).setCellValue("Count Test Failed for this table.");
+					for (String value : difference) {
+						row.createCell(cellnum++).setCellValue(value == null ? "" : value);
+					}
+					pass = false;
+				}
+				if (diff.isLimitReached()) {
+					row = sheet.createRow(rownum++);
+					row.createCell(0).setCellValue(tableName);
+					row.createCell(7).setCellValue(
+							"Stopped after " + compareDiffLimit + " differences, see comparedifflimit in the test data.");
 				}
 			}
 			endLocalDateTime = LocalDateTime.now();
@@ -282,6 +238,16 @@ public class SQLiteCompareTest extends TestBase {
 		}
 	}
 
+	/**
+	 * @return the number of rows in a table, counted by the database
+	 */
+	private static long count(Statement statement, String tableName) throws SQLException {
+		try (ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM " + tableName)) {
+			result.next();
+			return result.getLong(1);
+		}
+	}
+
 	/**
 	 * Tells the project client to perform the data collection
 	 * 
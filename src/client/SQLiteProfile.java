@@ -0,0 +1,113 @@
+package client;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+/**
+ * SQLiteProfile helper object.
+ *
+ * <P>
+ * How TestBase.connectSQLite opens a database, chosen by what the connection
+ * is for:
+ * <ul>
+ * <li>DEFAULT - read-write with SQLite's default settings, as the suite always
+ * opened it.</li>
+ * <li>READ_ONLY - for querying a database nothing is writing to, such as a
+ * fixture or the service's cache once the service is stopped. The file is
+ * opened read-only and query-only, so no journal or lock is written next to
+ * it, with a large memory map and page cache. Without a -wal file beside it
+ * the file is also opened as immutable, which skips locking altogether; a
+ * database with a -wal file is read through the WAL as usual.</li>
+ * <li>LIVE_READ_ONLY - for polling a database the service is still writing
+ * to. Read-only and query-only like READ_ONLY, but never immutable and without
+ * the memory map, so it takes the usual shared locks and sees every commit.
+ * </li>
+ * <li>BULK_WRITE - for large inserts, including into the service's own cache.
+ * Sets synchronous NORMAL, so fewer commits wait for the disk, with a large
+ * page cache and temporary data in memory, all for this connection only. The
+ * journal mode is left as the database's owner set it, as WAL would stay set
+ * on the file.</li>
+ * <li>IN_MEMORY_SNAPSHOT - for heavy querying of a database that is read many
+ * times. The file is copied into an in-memory database with SQLite's backup
+ * API, through sqlite-jdbc's "restore from" command, and the file is not
+ * touched again.</li>
+ * </ul>
+ *
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public enum SQLiteProfile {
+	DEFAULT, READ_ONLY, LIVE_READ_ONLY, BULK_WRITE, IN_MEMORY_SNAPSHOT;
+
+	private static final int SQLITE_OPEN_READONLY = 0x01, SQLITE_OPEN_URI = 0x40;
+	private static final long MMAP_BYTES = 256L * 1024 * 1024;
+	private static final int CACHE_KIBIBYTES = 64 * 1024;
+
+	/**
+	 * Opens a database with this profile.
+	 *
+	 * @param path the database file
+	 * @return a Connection with auto-commit off
+	 * @throws SQLException
+	 */
+	Connection open(String path) throws SQLException {
+		Connection conn;
+		switch (this) {
+		case READ_ONLY:
+			File file = new File(path);
+			boolean immutable = !new File(path + "-wal").exists();
+			Properties properties = new Properties();
+			properties.setProperty("open_mode", String.valueOf(SQLITE_OPEN_READONLY | SQLITE_OPEN_URI));
+			conn = DriverManager.getConnection(
+					"jdbc:sqlite:" + file.toURI() + "?mode=ro" + (immutable ? "&immutable=1" : ""), properties);
+			pragmas(conn, "query_only = 1", "mmap_size = " + MMAP_BYTES, "cache_size = -" + CACHE_KIBIBYTES,
+					"temp_store = MEMORY");
+			break;
+		case LIVE_READ_ONLY:
+			Properties liveProperties = new Properties();
+			liveProperties.setProperty("open_mode", String.valueOf(SQLITE_OPEN_READONLY | SQLITE_OPEN_URI));
+			conn = DriverManager.getConnection("jdbc:sqlite:" + new File(path).toURI() + "?mode=ro", liveProperties);
+			pragmas(conn, "query_only = 1");
+			break;
+		case BULK_WRITE:
+			conn = DriverManager.getConnection("jdbc:sqlite:" + path);
+			pragmas(conn, "synchronous = NORMAL", "cache_size = -" + CACHE_KIBIBYTES, "temp_store = MEMORY");
+			break;
+		case IN_MEMORY_SNAPSHOT:
+			conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+			long started = System.nanoTime();
+			try (Statement statement = conn.createStatement()) {
+				statement.executeUpdate("restore from \"" + path + "\"");
+			} catch (SQLException e) {
+				conn.close();
+				throw e;
+			}
+			System.out.println("     Loaded " + path + " into memory in " + (System.nanoTime() - started) / 1000000
+					+ " ms");
+			pragmas(conn, "cache_size = -" + CACHE_KIBIBYTES, "temp_store = MEMORY");
+			break;
+		default:
+			conn = DriverManager.getConnection("jdbc:sqlite:" + path);
+		}
+		conn.setAutoCommit(false);
+		return conn;
+	}
+
+	/**
+	 * Runs PRAGMAs on a new connection, closing it if one fails.
+	 */
+	private static void pragmas(Connection conn, String... pragmas) throws SQLException {
+		try (Statement statement = conn.createStatement()) {
+			for (String pragma : pragmas) {
+				statement.execute("PRAGMA " + pragma);
+			}
+		} catch (SQLException e) {
+			conn.close();
+			throw e;
+		}
+	}
+}
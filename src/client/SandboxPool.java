@@ -0,0 +1,227 @@
+package client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * SandboxPool object.
+ *
+ * <P>
+ * Runs test cases on several service instances at once. Each slot, from the
+ * "Sandbox Slots" sheet of TestData.xlsx, has its own service, cache folder and
+ * log folders, so test cases on different slots cannot see each other's files.
+ * Test cases are scheduled in units: a row that runs Project together with the
+ * rows after it that reuse its run or query the state it left, which must stay
+ * on one slot and in order. Each unit is rebuilt against the slot it lands on
+ * and its results replace the original tests in the list, so results are
+ * collected per case as before.
+ *
+ * <P>
+ * Units that run against the same database, e.g. DataPush units on slots that
+ * share a MySQL database, take turns: a unit holds its databases until its
+ * last row is done, so CLEAR, INSERT and SELECT rows of different slots never
+ * interleave on one database. A slot's "MySQL Database" column gives it a
+ * database of its own, letting its DataPush units run alongside the others.
+ *
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class SandboxPool {
+	private final BlockingQueue<HashMap<String, String>> freeSlots;
+	private final ExecutorService workers;
+	private final Map<String, ReentrantLock> databaseLocks = new ConcurrentHashMap<String, ReentrantLock>();
+	private final int size;
+
+	/**
+	 * Constructor
+	 *
+	 * @param slots test data of each slot, see ExcelHandler.getSandboxSlots
+	 */
+	public SandboxPool(ArrayList<HashMap<String, String>> slots) {
+		size = slots.size();
+		freeSlots = new ArrayBlockingQueue<HashMap<String, String>>(slots.size(), false, slots);
+		AtomicInteger count = new AtomicInteger();
+		workers = Executors.newFixedThreadPool(slots.size(), runnable -> {
+			Thread thread = new Thread(runnable, "sandbox-slot-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * @return number of service instances tests run on at once
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Schedules every test onto the free slots and returns right away.
+	 *
+	 * @param tests   the tests of a factory, in run order and already planned by
+	 *                the ScenarioPlanner; entries are replaced by the instances
+	 *                that ran
+	 * @param factory builds a test from its spreadsheet row and a slot's test
+	 *                data, e.g. DataCollectionTest::new
+	 * @return the outcome of each test, in the order of tests
+	 */
+	public <T extends OperationTest> ArrayList<CompletableFuture<Void>> schedule(ArrayList<T> tests,
+			BiFunction<HashMap<String, String>, HashMap<String, String>, T> factory) {
+		ArrayList<CompletableFuture<Void>> results = new ArrayList<CompletableFuture<Void>>();
+		for (int i = 0; i < tests.size(); i++) {
+			results.add(new CompletableFuture<Void>());
+		}
+		ArrayList<T> planned = new ArrayList<T>(tests);
+		int start = 0;
+		for (int i = 1; i <= planned.size(); i++) {
+			if (i == planned.size() || startsUnit(planned.get(i))) {
+				int first = start;
+				ArrayList<T> originals = new ArrayList<T>(planned.subList(start, i));
+				workers.execute(() -> runUnit(tests, originals, first, factory, results));
+				start = i;
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Waits for a scheduled test and rethrows whatever made it fail, so it is
+	 * reported by its own DynamicTest.
+	 *
+	 * @param result the outcome of the test from schedule
+	 * @throws Throwable the failure of the test
+	 */
+	public static void await(CompletableFuture<Void> result) throws Throwable {
+		try {
+			result.get();
+		} catch (ExecutionException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Stops the slot threads once the scheduled tests are done.
+	 */
+	public void shutdown() {
+		workers.shutdown();
+	}
+
+	/**
+	 * @return true if the test runs Project itself, so earlier tests' state is
+	 *         not needed
+	 */
+	private static boolean startsUnit(OperationTest test) {
+		return !test.isScenarioFollower() && test.getScenarioKey() != null;
+	}
+
+	/**
+	 * Runs one unit of tests on a free slot, rebuilt for that slot.
+	 * 
+	 * @param first index in tests of the first test of the unit
+	 */
+	private <T extends OperationTest> void runUnit(ArrayList<T> tests, ArrayList<T> originals, int first,
+			BiFunction<HashMap<String, String>, HashMap<String, String>, T> factory,
+			ArrayList<CompletableFuture<Void>> results) {
+		HashMap<String, String> slot;
+		try {
+			slot = freeSlots.take();
+		} catch (InterruptedException e) {
+			for (int i = 0; i < originals.size(); i++) {
+				results.get(first + i).completeExceptionally(e);
+			}
+			return;
+		}
+		try {
+			ArrayList<T> unit = new ArrayList<T>();
+			for (int i = 0; i < originals.size(); i++) {
+				T test;
+				try {
+					test = factory.apply(originals.get(i).getRowData(), slot);
+				} catch (Throwable e) { // e.g. a row with a missing column
+					results.get(first + i).completeExceptionally(e);
+					unit.add(null);
+					continue;
+				}
+				int leader = originals.indexOf(originals.get(i).scenarioLeader);
+				if (leader >= 0) {
+					test.scenarioLeader = unit.get(leader);
+				}
+				unit.add(test);
+			}
+			ArrayList<T> built = new ArrayList<T>(unit);
+			built.removeIf(test -> test == null);
+			AssertionBatcher.plan(built); // the originals' batches hold the originals
+			ArrayList<ReentrantLock> locks = lockDatabases(built);
+			try {
+				System.out.println("Running test case(s) " + originals.get(0).getTestCaseNumber() + " to "
+						+ originals.get(originals.size() - 1).getTestCaseNumber() + " on service "
+						+ slot.get("servicename"));
+				for (int i = 0; i < unit.size(); i++) {
+					T test = unit.get(i);
+					if (test == null) {
+						continue;
+					}
+					Throwable failure = null;
+					try {
+						test.runAction();
+					} catch (Throwable e) {
+						failure = e;
+					}
+					synchronized (tests) {
+						tests.set(first + i, test);
+					}
+					if (failure == null) {
+						results.get(first + i).complete(null);
+					} else {
+						results.get(first + i).completeExceptionally(failure);
+					}
+				}
+			} finally {
+				for (ReentrantLock lock : locks) {
+					lock.unlock();
+				}
+			}
+		} finally {
+			freeSlots.add(slot);
+		}
+	}
+
+	/**
+	 * Waits until no other slot runs a unit against the databases of this unit's
+	 * tests and holds them for it. Locks are taken in key order, so two units
+	 * never wait for each other.
+	 * 
+	 * @param unit the tests of the unit, built for its slot
+	 * @return the locks held, to be unlocked when the unit is done
+	 */
+	private ArrayList<ReentrantLock> lockDatabases(ArrayList<? extends OperationTest> unit) {
+		TreeSet<String> databases = new TreeSet<String>();
+		for (OperationTest test : unit) {
+			if (test.getDatabaseKey() != null) {
+				databases.add(test.getDatabaseKey());
+			}
+		}
+		ArrayList<ReentrantLock> locks = new ArrayList<ReentrantLock>();
+		for (String database : databases) {
+			ReentrantLock lock = databaseLocks.computeIfAbsent(database, key -> new ReentrantLock());
+			if (!lock.tryLock()) {
+				System.out.println("Waiting for another slot to finish with " + database);
+				lock.lock();
+			}
+			locks.add(lock);
+		}
+		return locks;
+	}
+}
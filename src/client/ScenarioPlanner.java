@@ -0,0 +1,59 @@
+package client;
+
+import java.util.List;
+
+/**
+ * ScenarioPlanner helper object.
+ *
+ * <P>
+ * Groups consecutive spreadsheet rows that need the same Project run, i.e. the
+ * same log source path and wait settings, so the service is stopped, cleaned,
+ * fed, started and archived once per scenario instead of once per row. The
+ * first row of a group is its leader and performs the run; the rows after it
+ * only run their assertions against the state it left. Each row still reports
+ * as its own test.
+ *
+ * <P>
+ * A row that changes the database (INSERT or CLEAR) is the last of its group,
+ * so no row sees data another row wrote, and a row with the "isolatedrun"
+ * column set always gets a run of its own.
+ *
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class ScenarioPlanner {
+
+	private ScenarioPlanner() {
+	}
+
+	/**
+	 * Assigns every row that can reuse an earlier row's run its scenario leader.
+	 *
+	 * @param tests the rows of a test factory, in run order
+	 * @return the number of Project runs the rows will need
+	 */
+	public static int plan(List<? extends OperationTest> tests) {
+		OperationTest leader = null;
+		int runs = 0;
+		for (OperationTest test : tests) {
+			String key = test.getScenarioKey();
+			if (key == null) {
+				if (test.mutatesScenario()) { // writes to the state the group is asserting on
+					leader = null;
+				}
+				continue;
+			}
+			if (leader != null && key.equals(leader.getScenarioKey()) && !test.isIsolatedRun()) {
+				test.scenarioLeader = leader;
+			} else {
+				leader = test;
+				runs++;
+			}
+			if (test.mutatesScenario() || test.isIsolatedRun()) {
+				leader = null;
+			}
+		}
+		System.out.println("Planned " + runs + " Project run(s) for " + tests.size() + " test case(s).");
+		return runs;
+	}
+}
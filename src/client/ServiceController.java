@@ -0,0 +1,89 @@
+package client;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ServiceController interface.
+ * 
+ * <P>
+ * Starts, stops and probes the Project service for the tests. Implementations
+ * return as soon as the service reaches the requested state rather than
+ * sleeping for a fixed time.
+ * 
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public interface ServiceController {
+	/**
+	 * States a service can be reported in, modeled after the Windows service
+	 * states.
+	 */
+	enum State {
+		STOPPED, START_PENDING, RUNNING, STOP_PENDING, UNKNOWN
+	}
+
+	/**
+	 * Asks the service to start, without waiting for it to be running.
+	 * 
+	 * @throws IOException if the start request could not be issued
+	 */
+	void start() throws IOException;
+
+	/**
+	 * Asks the service to stop, without waiting for it to be stopped.
+	 * 
+	 * @throws IOException if the stop request could not be issued
+	 */
+	void stop() throws IOException;
+
+	/**
+	 * @return the current state of the service
+	 * @throws IOException if the state could not be queried
+	 */
+	State status() throws IOException;
+
+	/**
+	 * Polls the service state until it matches the target or the timeout passes.
+	 * 
+	 * @param target  the state to wait for
+	 * @param timeout how long to wait at most
+	 * @param unit    unit of the timeout
+	 * @return true if the target state was reached in time
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	default boolean awaitState(State target, long timeout, TimeUnit unit) throws IOException, InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (status() != target) {
+			if (System.nanoTime() >= deadline) {
+				return false;
+			}
+			TimeUnit.MILLISECONDS.sleep(250);
+		}
+		return true;
+	}
+
+	/**
+	 * Picks the controller named by the ServiceController test data value,
+	 * "windows" or "process". Defaults to the Windows controller on Windows and
+	 * the local process controller everywhere else.
+	 * 
+	 * @param testData the Test Data sheet
+	 * @return a controller for the configured service name
+	 */
+	static ServiceController fromTestData(HashMap<String, String> testData) {
+		String type = testData.get("servicecontroller");
+		if (type == null || type.isEmpty()) {
+			type = System.getProperty("os.name").startsWith("Windows") ? "windows" : "process";
+		}
+		if (type.equalsIgnoreCase("process")) {
+			String healthPort = testData.get("servicehealthport");
+			return new LocalProcessServiceController(testData.get("servicename"), testData.get("servicecommand"),
+					(healthPort == null || healthPort.isEmpty()) ? -1
+							: (int) Math.round(Double.parseDouble(healthPort)));
+		}
+		return new WindowsServiceController(testData.get("servicename"));
+	}
+}
@@ -0,0 +1,271 @@
+package client;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SqlTemplate helper object.
+ *
+ * <P>
+ * The statement text of a test row's INSERT, SELECT, COUNT or CLEAR, built once
+ * for each table, action, column set and dialect and cached for every row and
+ * test case that needs the same shape. Values are not part of the text: string
+ * columns are bound as strings and numbers as numbers through a
+ * PreparedStatement, so the database, and the driver's statement cache, can
+ * reuse the plan. Only values that are neither, such as a SQL expression in a
+ * timestamp column of an INSERT, are kept in the text and in the cache key.
+ *
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class SqlTemplate {
+	/**
+	 * Columns whose values are strings.
+	 */
+	static final Set<String> QUOTED_COLUMNS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+			"ActionType", "DatabaseType", "TableName", "DataPointId", "ObservationHash", "FileName", "Content",
+			"AttributeValue", "AttributeValueString", "PropertyValue", "LogSamplePath", "LogDestinationPath",
+			"ModificationTime", "CollectionTimestamp")));
+	/**
+	 * Timestamp columns an INSERT takes as numbers or SQL expressions rather than
+	 * strings.
+	 */
+	static final Set<String> EXCLUDE_FOR_INSERT = Collections.unmodifiableSet(new HashSet<String>(
+			Arrays.asList("StartArchiveCollectionTimestamp", "ModificationTime", "CollectionTimestamp")));
+	private static final Map<String, SqlTemplate> cache = new ConcurrentHashMap<String, SqlTemplate>();
+
+	private final String action;
+	private final String[] parameterColumns;
+	private final boolean[] stringParameters;
+	private final String text, rowValues, condition;
+	private final Map<Integer, String> multiRowTexts = new ConcurrentHashMap<Integer, String>();
+
+	/**
+	 * Finds or compiles the template of a row.
+	 *
+	 * @param action    INSERT, SELECT, COUNT or CLEAR
+	 * @param tableName the table the row acts on
+	 * @param dialect   mysql or sqlite
+	 * @param row       the row's column values, in column order
+	 * @return the template, shared with every row of the same shape
+	 */
+	public static SqlTemplate of(String action, String tableName, String dialect, LinkedHashMap<String, String> row) {
+		StringBuilder key = new StringBuilder(action).append('|').append(tableName).append('|').append(dialect);
+		for (Map.Entry<String, String> column : row.entrySet()) {
+			key.append('|').append(column.getKey());
+			if (kind(action, column.getKey(), column.getValue()) == Kind.EXPRESSION) {
+				key.append('=').append(column.getValue());
+			}
+		}
+		return cache.computeIfAbsent(key.toString(), k -> new SqlTemplate(action, tableName, dialect, row));
+	}
+
+	/**
+	 * @return number of statement shapes compiled so far
+	 */
+	public static int cachedTemplates() {
+		return cache.size();
+	}
+
+	private SqlTemplate(String action, String tableName, String dialect, LinkedHashMap<String, String> row) {
+		this.action = action;
+		ArrayList<String> parameters = new ArrayList<String>();
+		ArrayList<Boolean> strings = new ArrayList<Boolean>();
+		StringBuilder sql = new StringBuilder();
+		StringBuilder values = new StringBuilder("(");
+		StringBuilder where = new StringBuilder();
+		if (action.equals("INSERT")) {
+			sql.append("INSERT INTO ").append(tableName).append('(');
+			String separator = "";
+			for (Map.Entry<String, String> column : row.entrySet()) {
+				Kind kind = kind(action, column.getKey(), column.getValue());
+				sql.append(separator).append(column.getKey());
+				values.append(separator.isEmpty() ? "" : ",");
+				separator = ", ";
+				if (kind == Kind.EXPRESSION) {
+					values.append(column.getValue());
+				} else {
+					values.append('?');
+					parameters.add(column.getKey());
+					strings.add(kind == Kind.STRING);
+				}
+			}
+			values.append(')');
+			sql.append(") VALUES ").append(values);
+		} else if (action.equals("SELECT") || action.equals("COUNT")) {
+			String equalsOperator = dialect.equals("mysql") ? " = " : " == ";
+			sql.append("SELECT ").append(action.equals("COUNT") ? "COUNT(*)" : "*").append(" FROM ").append(tableName);
+			String separator = "";
+			for (Map.Entry<String, String> column : row.entrySet()) {
+				Kind kind = kind(action, column.getKey(), column.getValue());
+				where.append(separator).append(column.getKey()).append(equalsOperator);
+				separator = " AND ";
+				if (kind == Kind.EXPRESSION) {
+					where.append(column.getValue());
+				} else {
+					where.append('?');
+					parameters.add(column.getKey());
+					strings.add(kind == Kind.STRING);
+				}
+			}
+			if (where.length() > 0) {
+				sql.append(" WHERE ").append(where);
+			}
+		} else if (action.equals("CLEAR")) {
+			sql.append("DELETE FROM ").append(tableName);
+			if (dialect.equals("mysql")) { // MySQL rows are cleared per node
+				sql.append(" WHERE NodeId = ?");
+				parameters.add("NodeId");
+				strings.add(false);
+			}
+		} else {
+			throw new IllegalArgumentException("No SQL template for action " + action);
+		}
+		text = sql.toString();
+		rowValues = values.toString();
+		condition = where.toString();
+		parameterColumns = parameters.toArray(new String[parameters.size()]);
+		stringParameters = new boolean[strings.size()];
+		for (int i = 0; i < stringParameters.length; i++) {
+			stringParameters[i] = strings.get(i);
+		}
+	}
+
+	/**
+	 * @return the statement text
+	 */
+	public String getSql() {
+		return text;
+	}
+
+	/**
+	 * @param rows number of rows in the VALUES list
+	 * @return the text of an INSERT of several rows at once
+	 */
+	public String getSql(int rows) {
+		if (rows == 1 || !action.equals("INSERT")) {
+			return text;
+		}
+		return multiRowTexts.computeIfAbsent(rows, count -> {
+			StringBuilder sql = new StringBuilder(text);
+			for (int i = 1; i < count; i++) {
+				sql.append(',').append(rowValues);
+			}
+			return sql.toString();
+		});
+	}
+
+	/**
+	 * @return the WHERE condition of a SELECT or COUNT, without the WHERE, or ""
+	 *         if it matches every row
+	 */
+	public String getCondition() {
+		return condition;
+	}
+
+	/**
+	 * @return number of values bound per row
+	 */
+	public int getParameterCount() {
+		return parameterColumns.length;
+	}
+
+	/**
+	 * Binds a row's values to a statement prepared from this template.
+	 *
+	 * @param statement the prepared statement
+	 * @param row       the row's column values
+	 * @param rows      times the row is repeated in the VALUES list
+	 * @throws SQLException
+	 */
+	public void bind(PreparedStatement statement, LinkedHashMap<String, String> row, int rows) throws SQLException {
+		int index = 1;
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < parameterColumns.length; j++) {
+				bindValue(statement, index++, j, row.get(parameterColumns[j]));
+			}
+		}
+	}
+
+	/**
+	 * Binds a row's values to the parameters of this template's text or
+	 * condition where it is part of a larger statement.
+	 *
+	 * @param statement the prepared statement
+	 * @param row       the row's column values
+	 * @param index     the index of the first parameter to bind
+	 * @return the index of the parameter after the last one bound
+	 * @throws SQLException
+	 */
+	public int bindFrom(PreparedStatement statement, LinkedHashMap<String, String> row, int index)
+			throws SQLException {
+		for (int j = 0; j < parameterColumns.length; j++) {
+			bindValue(statement, index++, j, row.get(parameterColumns[j]));
+		}
+		return index;
+	}
+
+	/**
+	 * Binds the next rows of a generator to a statement prepared from this
+	 * template, taking the columns it does not generate from the row.
+	 *
+	 * @param statement the prepared statement
+	 * @param row       the row's column values
+	 * @param generator makes the values of the generated columns
+	 * @param rows      rows in the VALUES list
+	 * @throws SQLException
+	 */
+	public void bind(PreparedStatement statement, LinkedHashMap<String, String> row, RowGenerator generator,
+			int rows) throws SQLException {
+		int index = 1;
+		for (int i = 0; i < rows; i++) {
+			generator.nextRow();
+			for (int j = 0; j < parameterColumns.length; j++, index++) {
+				if (!generator.bind(statement, index, parameterColumns[j])) {
+					bindValue(statement, index, j, row.get(parameterColumns[j]));
+				}
+			}
+		}
+	}
+
+	private void bindValue(PreparedStatement statement, int index, int parameter, String value) throws SQLException {
+		if (stringParameters[parameter]) {
+			statement.setString(index, value);
+		} else {
+			double number = Double.parseDouble(value);
+			if (number == Math.rint(number) && Math.abs(number) < 0x1p53) {
+				statement.setLong(index, (long) number);
+			} else {
+				statement.setDouble(index, number);
+			}
+		}
+	}
+
+	private enum Kind {
+		STRING, NUMBER, EXPRESSION
+	}
+
+	/**
+	 * @return how a value is put into the statement
+	 */
+	private static Kind kind(String action, String column, String value) {
+		if (QUOTED_COLUMNS.contains(column) && !(EXCLUDE_FOR_INSERT.contains(column) && action.equals("INSERT"))) {
+			return Kind.STRING;
+		}
+		try {
+			Double.parseDouble(value);
+			// parseDouble also takes NaN, Infinity and suffixes like 1d, none of them SQL numbers
+			return Character.isDigit(value.charAt(value.length() - 1)) ? Kind.NUMBER : Kind.EXPRESSION;
+		} catch (NumberFormatException e) { // e.g. datetime('now'), kept as written
+			return Kind.EXPRESSION;
+		}
+	}
+}
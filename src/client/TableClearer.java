@@ -0,0 +1,155 @@
+package client;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+
+/**
+ * TableClearer helper object.
+ *
+ * <P>
+ * Clears a node's rows from a large MySQL table without holding its locks and
+ * undo log for one long transaction. Rows are deleted in ranges of the table's
+ * integer primary key, skipping gaps in the key, and every range is committed
+ * on its own. Tables without a single integer primary key are deleted from
+ * with DELETE ... LIMIT instead, again a commit per chunk. A dedicated test
+ * database can also be cleared whole with TRUNCATE TABLE.
+ *
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class TableClearer {
+
+	private TableClearer() {
+	}
+
+	/**
+	 * Deletes a node's rows chunk by chunk, committing after each.
+	 *
+	 * @param connection a connection with auto-commit off
+	 * @param tableName  the table to clear
+	 * @param nodeId     the node whose rows are deleted
+	 * @param chunkSize  keys in each primary key range, or rows per DELETE
+	 * @return number of rows deleted
+	 * @throws SQLException
+	 */
+	public static long deleteInChunks(Connection connection, String tableName, long nodeId, int chunkSize)
+			throws SQLException {
+		String primaryKey = integerPrimaryKey(connection, tableName);
+		if (primaryKey == null) {
+			System.out.println("     " + tableName + " has no single integer primary key, deleting with LIMIT");
+			return deleteWithLimit(connection, tableName, nodeId, chunkSize);
+		}
+		long deleted = 0, chunks = 0;
+		try (PreparedStatement next = connection.prepareStatement(
+				"SELECT MIN(" + primaryKey + ") FROM " + tableName + " WHERE NodeId = ? AND " + primaryKey + " >= ?");
+				PreparedStatement delete = connection.prepareStatement("DELETE FROM " + tableName
+						+ " WHERE NodeId = ? AND " + primaryKey + " BETWEEN ? AND ?")) {
+			next.setLong(1, nodeId);
+			delete.setLong(1, nodeId);
+			long low = Long.MIN_VALUE;
+			while (true) {
+				next.setLong(2, low);
+				try (ResultSet result = next.executeQuery()) {
+					result.next();
+					low = result.getLong(1);
+					if (result.wasNull()) {
+						break;
+					}
+				}
+				long high = low > Long.MAX_VALUE - (chunkSize - 1) ? Long.MAX_VALUE : low + (chunkSize - 1);
+				delete.setLong(2, low);
+				delete.setLong(3, high);
+				deleted += delete.executeUpdate();
+				connection.commit();
+				chunks++;
+				if (high == Long.MAX_VALUE) {
+					break;
+				}
+				low = high + 1;
+			}
+		}
+		System.out.println("     Deleted in " + chunks + " primary key range(s) of " + chunkSize);
+		return deleted;
+	}
+
+	/**
+	 * Empties a whole table. TRUNCATE TABLE commits on its own and cannot be
+	 * rolled back.
+	 *
+	 * @param connection   a connection to the dedicated test database
+	 * @param databaseName the database the connection must be on
+	 * @param tableName    the table to empty
+	 * @return number of rows the table held
+	 * @throws SQLException if the connection is on another database
+	 */
+	public static long truncate(Connection connection, String databaseName, String tableName) throws SQLException {
+		String connected = connection.getCatalog();
+		if (databaseName == null || !databaseName.equalsIgnoreCase(connected)) {
+			throw new SQLException("Not truncating " + tableName + ", connected to database " + connected
+					+ " instead of the dedicated test database " + databaseName);
+		}
+		long rows;
+		try (Statement statement = connection.createStatement()) {
+			try (ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM " + tableName)) {
+				result.next();
+				rows = result.getLong(1);
+			}
+			statement.executeUpdate("TRUNCATE TABLE " + tableName);
+		}
+		return rows;
+	}
+
+	private static long deleteWithLimit(Connection connection, String tableName, long nodeId, int chunkSize)
+			throws SQLException {
+		long deleted = 0;
+		try (PreparedStatement delete = connection
+				.prepareStatement("DELETE FROM " + tableName + " WHERE NodeId = ? LIMIT ?")) {
+			delete.setLong(1, nodeId);
+			delete.setInt(2, chunkSize);
+			int count;
+			do {
+				count = delete.executeUpdate();
+				connection.commit();
+				deleted += count;
+			} while (count == chunkSize);
+		}
+		return deleted;
+	}
+
+	/**
+	 * @return the table's primary key column if it is a single integer column,
+	 *         otherwise null
+	 */
+	private static String integerPrimaryKey(Connection connection, String tableName) throws SQLException {
+		DatabaseMetaData metadata = connection.getMetaData();
+		ArrayList<String> keyColumns = new ArrayList<String>();
+		try (ResultSet keys = metadata.getPrimaryKeys(connection.getCatalog(), null, tableName)) {
+			while (keys.next()) {
+				keyColumns.add(keys.getString("COLUMN_NAME"));
+			}
+		}
+		if (keyColumns.size() != 1) {
+			return null;
+		}
+		try (ResultSet columns = metadata.getColumns(connection.getCatalog(), null, tableName, keyColumns.get(0))) {
+			if (columns.next()) {
+				switch (columns.getInt("DATA_TYPE")) {
+				case Types.TINYINT:
+				case Types.SMALLINT:
+				case Types.INTEGER:
+				case Types.BIGINT:
+					return keyColumns.get(0);
+				default:
+					return null;
+				}
+			}
+		}
+		return null;
+	}
+}
@@ -1,26 +1,15 @@
 package client;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.Period;
-import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Stream;
 
-import org.apache.commons.io.FileUtils;
 import org.junit.platform.commons.util.ToStringBuilder;
 
 /**
@@ -44,7 +33,20 @@ public class TestBase {
 	protected boolean pass;
 	protected int waitMinutesProjectClientDataPush;
 	protected int waitMinutesProjectClientDataCollection;
+	protected int quietSecondsProjectClient;
+	protected int pollSecondsProjectClient;
 	protected File from, to;
+	protected final ServiceController serviceController;
+	protected int serviceTimeoutSeconds;
+	protected int rebaseThreads;
+	protected int maxStagedFixtureAgeMinutes;
+	protected FixtureCopier.Mode fixtureCopyMode = FixtureCopier.Mode.COPY;
+	protected String archiveMode;
+	protected String archiveStorePath;
+	protected int archiveThreads;
+	protected int maxPendingArchives;
+	protected TestBase scenarioLeader;
+	protected volatile boolean scenarioRunCompleted;
 
 	/**
 	 * Constructor
@@ -54,16 +56,46 @@ public class TestBase {
 	 */
 	protected TestBase(HashMap<String, String> testData) {
 		workingDirectory = new File("").getAbsolutePath();
-		agentProgramCachePath = System.getenv(testData.get("agentprogramcache").replaceAll("%|/", ""));
+		String agentProgramCache = testData.get("agentprogramcache");
+		String cachePath = System.getenv(agentProgramCache.replaceAll("%|/", ""));
+		if (cachePath == null && keyInHashMap(testData, "sandboxslot")) {
+			cachePath = agentProgramCache; // a sandbox slot's own cache folder
+		}
+		agentProgramCachePath = cachePath;
 		projectClientLogPath = agentProgramCachePath + "/../Logs";
 		serviceName = testData.get("servicename");
 		waitMinutesProjectClientDataCollection = (int) Math
 				.round(Double.parseDouble(testData.get("waitminutesforprojectclientlogcollection")));
 		waitMinutesProjectClientDataPush = (int) Math
 				.round(Double.parseDouble(testData.get("waitminutesforprojectclientdatapush")));
+		quietSecondsProjectClient = keyInHashMap(testData, "quietsecondsforprojectclientcompletion")
+				? (int) Math.round(Double.parseDouble(testData.get("quietsecondsforprojectclientcompletion")))
+				: 60;
+		pollSecondsProjectClient = keyInHashMap(testData, "pollsecondsforprojectclientcompletion")
+				? (int) Math.round(Double.parseDouble(testData.get("pollsecondsforprojectclientcompletion")))
+				: 5;
 		agentLogsDestinationPath = testData.get("agentlogdestinationpath");
 		logDestinationPath = testData.get("logdestinationfile");
 		mcmLogFolderPath = testData.get("mcmlogfolderpath");
+		serviceController = ServiceController.fromTestData(testData);
+		serviceTimeoutSeconds = keyInHashMap(testData, "servicetimeoutseconds")
+				? (int) Math.round(Double.parseDouble(testData.get("servicetimeoutseconds")))
+				: 120;
+		rebaseThreads = keyInHashMap(testData, "rebasethreads")
+				? (int) Math.round(Double.parseDouble(testData.get("rebasethreads")))
+				: Runtime.getRuntime().availableProcessors();
+		maxStagedFixtureAgeMinutes = keyInHashMap(testData, "maxstagedfixtureageminutes")
+				? (int) Math.round(Double.parseDouble(testData.get("maxstagedfixtureageminutes")))
+				: 30;
+		archiveMode = keyInHashMap(testData, "archivemode") ? testData.get("archivemode").toLowerCase() : "folder";
+		archiveStorePath = keyInHashMap(testData, "archivestorepath") ? testData.get("archivestorepath")
+				: workingDirectory + "\\TestArchive\\.blobs";
+		archiveThreads = keyInHashMap(testData, "archivethreads")
+				? (int) Math.round(Double.parseDouble(testData.get("archivethreads")))
+				: 2;
+		maxPendingArchives = keyInHashMap(testData, "maxpendingarchives")
+				? (int) Math.round(Double.parseDouble(testData.get("maxpendingarchives")))
+				: 2;
 		pass = true;
 	}
 
@@ -76,6 +108,7 @@ public class TestBase {
 				.append("agentProgramCachePath", agentProgramCachePath).append("serviceName", serviceName)
 				.append("WaitMinutesProjectClientDataCollection", waitMinutesProjectClientDataCollection)
 				.append("WaitMinutesProjectClientDataPush", waitMinutesProjectClientDataPush)
+				.append("QuietSecondsProjectClient", quietSecondsProjectClient)
 				.append("agentLogsDestinationPath", agentLogsDestinationPath)
 				.append("logDestinationPath", logDestinationPath).append("mcmLogFolderPath", mcmLogFolderPath)
 				.toString();
@@ -88,11 +121,19 @@ public class TestBase {
 	 * @return Connection a SQLite database connection object
 	 */
 	protected static Connection connectSQLite(String connectionString) throws SQLException {
-		String url = "jdbc:sqlite:" + connectionString;
-		Connection conn = null;
-		conn = DriverManager.getConnection(url);
-		conn.setAutoCommit(false);
-		return conn;
+		return connectSQLite(connectionString, SQLiteProfile.DEFAULT);
+	}
+
+	/**
+	 * makes a SQL connection to a SQLite Database set up for what it is used for
+	 * 
+	 * @param connectionString which points to a file location
+	 * @param profile          e.g. READ_ONLY for comparing a stopped service's
+	 *                         database, see SQLiteProfile
+	 * @return Connection a SQLite database connection object
+	 */
+	protected static Connection connectSQLite(String connectionString, SQLiteProfile profile) throws SQLException {
+		return profile.open(connectionString);
 	}
 
 	/**
@@ -101,15 +142,18 @@ public class TestBase {
 	 * @param serverName
 	 * @param portNumber
 	 * @param databaseName
+	 * @param user
+	 * @param password
 	 * @return a Connection to the mySql database
 	 * @throws SQLException if mistakes were made.
 	 */
-	protected static Connection connectMySQL(String serverName, int portNumber, String databaseName)
-			throws SQLException { // Database
-		String url = "jdbc:mysql://" + serverName + ":" + portNumber + "/" + databaseName + "?useSSL=false";
+	protected static Connection connectMySQL(String serverName, int portNumber, String databaseName, String user,
+			String password) throws SQLException { // Database
+		String url = "jdbc:mysql://" + serverName + ":" + portNumber + "/" + databaseName + "?useSSL=false"
+				+ "&useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=250&prepStmtCacheSqlLimit=2048";
 		Connection conn = null;
 		System.out.println("\nConnecting to MySql database url: " + url);
-		conn = DriverManager.getConnection(url, "root", "RI@server!");
+		conn = DriverManager.getConnection(url, user, password);
 		conn.setAutoCommit(false);
 		return conn;
 	}
@@ -121,197 +165,81 @@ public class TestBase {
 	 * @param key The key we are looking for
 	 * @return
 	 */
-	protected boolean keyInHashMap(HashMap<String,String> map, String key) {
+	protected static boolean keyInHashMap(HashMap<String,String> map, String key) {
 		return map.containsKey(key) && map.get(key) != null && !map.get(key).isEmpty();
 	}
 
 	/**
-	 * Starts Project Service.
+	 * Starts Project Service, returning once it is running.
 	 * 
-	 * @param rt Runtime
-	 * @throws IOException
+	 * @throws IOException          if the service did not start in time
 	 * @throws InterruptedException
 	 */
-	private void projectStart(Runtime rt) throws IOException, InterruptedException {
+	private void projectStart() throws IOException, InterruptedException {
 		System.out.println("     Starting " + serviceName);
-		rt.exec("cmd /c net start " + serviceName);
+		serviceController.start();
+		if (!serviceController.awaitState(ServiceController.State.RUNNING, serviceTimeoutSeconds, TimeUnit.SECONDS)) {
+			throw new IOException(serviceName + " did not reach RUNNING within " + serviceTimeoutSeconds + " seconds");
+		}
 		System.out.println("     agentProgram running");
 	}
 
 	/**
-	 * Stops Project service
+	 * Stops Project service, returning once it is stopped.
 	 * 
-	 * @param rt Runtime
-	 * @throws IOException
+	 * @throws IOException          if the service did not stop in time
 	 * @throws InterruptedException
 	 */
-	private void projectStop(Runtime rt) throws IOException, InterruptedException {
+	private void projectStop() throws IOException, InterruptedException {
 		System.out.println("     Stopping " + serviceName);
-		rt.exec("cmd /c net stop " + serviceName);
-		TimeUnit.SECONDS.sleep(10);
+		serviceController.stop();
+		if (!serviceController.awaitState(ServiceController.State.STOPPED, serviceTimeoutSeconds, TimeUnit.SECONDS)) {
+			throw new IOException(serviceName + " did not reach STOPPED within " + serviceTimeoutSeconds + " seconds");
+		}
 	}
 
 	/**
 	 * Cleans a list of folder paths, deleting all files within the folders of the
-	 * array.
+	 * array. Folders are swapped for empty ones right away and the old contents
+	 * deleted in the background by the FolderReaper.
 	 * 
 	 * @param pathsToClean The list of paths for the directories we would like to
 	 *                     clean.
 	 * @throws IOException
-	 * @throws InterruptedException
 	 */
-	private void CleanFolderPaths(String[] pathsToClean) throws IOException, InterruptedException {
+	private void CleanFolderPaths(String[] pathsToClean) throws IOException {
 		int countValidCleanPaths = 0;
 		for (int i = 0; i < pathsToClean.length; i++) {
 			if (pathsToClean[i] != null && new File(pathsToClean[i]).exists()) {
 				countValidCleanPaths++;
 				System.out.println("     Deleting old logs or cache... " + pathsToClean[i]);
-				File toClean = new File(pathsToClean[i]);
-				try {
-					FileUtils.cleanDirectory(toClean); // cleanDirectory should not delete the directory, but it does,
-					if (!toClean.exists()) { // hence the forceMkdir
-						FileUtils.forceMkdir(toClean);
-					}
-				} catch (IOException ex) {
-					System.out.println(ex);
-				}
+				FolderReaper.clean(new File(pathsToClean[i]));
 			}
 		}
 		if (countValidCleanPaths == 0) {
 			throw new IOException("No folders/files in the test specified folders to clean.");
 		}
-		TimeUnit.SECONDS.sleep(5);
-	}
-
-	/**
-	 * Helper used for updateLogLineDates, finding offset in hours, minutes, and
-	 * seconds between two LocalDateTime objects.
-	 * 
-	 * @param prev Past date
-	 * @param last Future Date
-	 * @return long[] with the DateTime offset. [ hours, minutes, seconds]
-	 */
-	private static long[] getOffsetTime(LocalDateTime prev, LocalDateTime last) { // From
-		// https://stackoverflow.com/questions/25747499/java-8-calculate-difference-between-two-localdatetime
-		LocalDateTime temp = LocalDateTime.of(last.getYear(), last.getMonthValue(), last.getDayOfMonth(),
-				prev.getHour(), prev.getMinute(), prev.getSecond());
-		Duration duration = Duration.between(temp, last);
-		long seconds = duration.getSeconds();
-		long hours = seconds / (60 * 60);
-		long minutes = ((seconds % (60 * 60)) / 60);
-		long secs = (seconds % 60);
-		return new long[] { hours, minutes, secs };
-	}
-
-	/**
-	 * Changes the dates in the log to be relative to the current date, using
-	 * different date time formatting for agentProgramV3.log. Used as a helper, if
-	 * agent logs have different names, update the overidding function.
-	 * 
-	 * @param logPath The log path for the log we want to update.
-	 * @param agent  True if log is a agentProgramV3.log, false otherwise.
-	 * @throws IOException
-	 * @throws InterruptedException
-	 */
-	private static void updateLogLineDates(String logPath, boolean agent) throws IOException, InterruptedException {
-		String tempLine = null;
-		String regexLogDate = agent ? "^[F-W][a-u][d-u] [A-S][a-u][b-y] [\\d, ]\\d \\d{2}:\\d{2}:\\d{2} \\d{4}"
-				: "\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}";
-		LocalDateTime finalDateTime = null;
-		LocalDateTime curDateTime = LocalDateTime.now();
-		DateTimeFormatter dateFormatForAgentProgramV3Log = DateTimeFormatter.ofPattern("EEE MMM ppd HH:mm:ss yyyy");
-		try (BufferedReader in = new BufferedReader(new FileReader(logPath))) {
-			while (((tempLine = in.readLine()) != null)) {
-				if (tempLine.matches(regexLogDate + ".*")) {
-					finalDateTime = agent ? LocalDateTime.parse(tempLine.split(",")[0], dateFormatForAgentProgramV3Log)
-							: LocalDateTime.parse(tempLine.split(" ")[0]);
-				}
-			}
-		}
-
-		try (BufferedReader in = new BufferedReader(new FileReader(logPath))) {
-			try (BufferedWriter tempFile = new BufferedWriter(new FileWriter(logPath + ".tmp"))) {
-				tempLine = null;
-				while (((tempLine = in.readLine()) != null)) {
-					if (tempLine.trim().matches(regexLogDate + ".*")) {
-						LocalDateTime prevDateTime = agent
-								? LocalDateTime.parse(tempLine.split(",")[0], dateFormatForAgentProgramV3Log)
-								: LocalDateTime.parse(tempLine.split(" ")[0]);
-						Period offsetDate = Period.between(prevDateTime.toLocalDate(), finalDateTime.toLocalDate());
-						long offsetTime[] = getOffsetTime(prevDateTime, finalDateTime);
-						LocalDateTime tempDateTime = curDateTime.minus(offsetDate).minusHours(offsetTime[0])
-								.minusMinutes(offsetTime[1]).minusSeconds(offsetTime[2]);
-						tempDateTime = tempDateTime.minusNanos(tempDateTime.getNano());
-						tempLine = tempLine.replaceAll(regexLogDate,
-								(agent ? dateFormatForAgentProgramV3Log.format(tempDateTime)
-										: (tempDateTime.getSecond() == 0) ? (tempDateTime.toString() + ":00")
-												: (tempDateTime.toString())));
-						tempFile.write(tempLine, 0, tempLine.length());
-						tempFile.newLine();
-					} else {
-						tempFile.write(tempLine, 0, tempLine.length());
-						tempFile.newLine();
-					}
-				}
-			}
-		}
-		new File(logPath).delete();
-		FileUtils.moveFile(new File(logPath + ".tmp"), new File(logPath));
-		TimeUnit.SECONDS.sleep(1);
 	}
 
 	/**
-	 * Takes in a path for a folder or a file. If it is a folder, it updates all log
-	 * files in the folder. If a file, it updates that file. Uses a overrode
-	 * function as a helper. Code in here primarily checks if file is a agentProgramV3
-	 * log and also handles folders, allowing log changing functionality to lie
-	 * within the overrode helper.
+	 * Takes in a path for a folder or a file and copies it into the destination
+	 * folder, updating the dates of log files while copying them. Dates are moved
+	 * relative to the current date, with agentProgramV3.log using its own date
+	 * time format. Each log is read once from the source and written once.
 	 * 
-	 * @param source String path to a folder or file.
+	 * @param source                   file/directory source
+	 * @param destination              destination directory
+	 * @param preserveFileModifiedDate preserves the modified date of copied files
+	 *                                 that are not logs
+	 * @return totals of the copy, including any files that failed
 	 * @throws IOException
 	 */
-	private static void updateLogLineDates(String source) throws IOException {
-
-		if (new File(source).isDirectory()) {
-			try (Stream<Path> paths = Files.walk(Paths.get(source))) {
-				paths.filter(Files::isRegularFile).forEach(path -> {
-					try {
-						if (path.toString().endsWith(".log") || path.toString().endsWith(".dg")
-								|| path.toString().endsWith(".rcp") || path.toString().endsWith(".rct")) {
-							if (path.toString().matches(".*agentProgramV3.log$")) {
-								System.out.println("Updating dates found in agentProgramV3 log file... " + path);
-								updateLogLineDates(path.toString(), true);
-							} else {
-								System.out.println("Updating dates found in log file... " + path);
-								updateLogLineDates(path.toString(), false);
-							}
-						}
-					} catch (IOException e) {
-						e.printStackTrace();
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-					}
-				});
-				System.out.println("Finished updating dates in log files to LocalDateTime.now");
-			}
-		} else {
-			try {
-				if (source.endsWith(".log") || source.endsWith(".dg") || source.endsWith(".rcp")
-						|| source.endsWith(".rct")) {
-					if (source.matches(".*agentProgramV3.log$")) {
-						System.out.println("Updating dates found in agentProgramV3 log file... " + source);
-						updateLogLineDates(source, true);
-					} else {
-						System.out.println("Updating dates found in log file... " + source);
-						updateLogLineDates(source, false);
-					}
-				}
-			} catch (IOException e) {
-				e.printStackTrace();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-		}
+	private CopySummary copyAndUpdateLogLineDates(File source, File destination, boolean preserveFileModifiedDate)
+			throws IOException {
+		CopySummary summary = LogDateRebaser.copyAndRebaseAll(source.toPath(), destination.toPath(),
+				preserveFileModifiedDate, LocalDateTime.now(), rebaseThreads);
+		System.out.println("     " + summary);
+		return summary;
 	}
 
 	/**
@@ -322,20 +250,26 @@ public class TestBase {
 	 * @param destination              destination directory
 	 * @param preserveFileModifiedDate boolean preserves data modified if true, and
 	 *                                 changes it if not true.
+	 * @param mode                     copy the files, or hard link files nothing
+	 *                                 will write to
+	 * @param threads                  number of files copied at once
+	 * @return totals and throughput of the copy
 	 */
-	private static void copyFoldersOrFiles(File source, File destination, boolean preserveFileModifiedDate)
-			throws IOException {
-		if (source.isDirectory()) {
-			FileUtils.copyDirectory(source, destination, preserveFileModifiedDate);
-		} else {
-			FileUtils.copyFileToDirectory(source, destination, preserveFileModifiedDate);
-		}
+	static CopySummary copyFoldersOrFiles(File source, File destination, boolean preserveFileModifiedDate,
+			FixtureCopier.Mode mode, int threads) throws IOException {
+		CopySummary summary = FixtureCopier.copy(source.toPath(), destination.toPath(), mode,
+				preserveFileModifiedDate, threads);
+		System.out.println("     " + summary);
+		summary.throwIfFailed();
+		return summary;
 	}
 
 	/**
 	 * Copies an array of files and folders to their proper destinations, preserving
 	 * the file modified date for them if needed. sourcePaths and destPaths must be
-	 * the same lengths and correspond with each other based on position.
+	 * the same lengths and correspond with each other based on position. If the
+	 * FixtureStager already staged these paths, the staged folders are swapped in
+	 * instead.
 	 * 
 	 * @param sourcePaths              Array of paths to be copied.
 	 * @param destPaths                Array of paths where files and folders will
@@ -347,6 +281,22 @@ public class TestBase {
 	 */
 	private void copyToProjectPaths(String[] sourcePaths, String[] destPaths, boolean preserveFileModifiedDate,
 			boolean updateLogFileDates) throws IOException, InterruptedException {
+		// fixtures are staged with the sources' modified dates, so only a copy keeping them can use one
+		boolean stagedFixtureUsable = preserveFileModifiedDate;
+		FixtureStager.StagedFixture staged = null;
+		if (stagedFixtureUsable) {
+			staged = FixtureStager.take(sourcePaths, destPaths, updateLogFileDates, fixtureCopyMode,
+					Duration.ofMinutes(maxStagedFixtureAgeMinutes));
+		}
+		if (staged != null) {
+			try {
+				staged.swapIn();
+				System.out.println("     Swapped in fixture staged at " + staged.getStagedAt());
+				return;
+			} catch (IOException e) {
+				System.out.println("     Could not swap in the staged fixture, copying instead: " + e);
+			}
+		}
 		int countValidSourcePaths = 0;
 		for (int i = 0; i < sourcePaths.length; i++) {
 			if (sourcePaths[i] != null && new File(sourcePaths[i]).exists()) {
@@ -355,9 +305,10 @@ public class TestBase {
 				from = new File(sourcePaths[i]);
 				to = new File(destPaths[i]);
 				System.out.println("     Copying... " + from.getName() + "\n     To... " + to);
-				copyFoldersOrFiles(from, to, preserveFileModifiedDate);
 				if (updateLogFileDates) {
-					updateLogLineDates(destPaths[i]);
+					copyAndUpdateLogLineDates(from, to, preserveFileModifiedDate).throwIfFailed();
+				} else {
+					copyFoldersOrFiles(from, to, preserveFileModifiedDate, fixtureCopyMode, rebaseThreads);
 				}
 			}
 		}
@@ -367,9 +318,50 @@ public class TestBase {
 		TimeUnit.SECONDS.sleep(5);
 	}
 
+	/**
+	 * Starts staging this test's fixtures in the background, so they can be
+	 * swapped in when the test runs. Called while the previous test is running.
+	 * Tests that copy no fixtures leave this empty.
+	 */
+	public void stageFixtures() {
+	}
+
+	/**
+	 * Stages fixtures with the FixtureStager.
+	 * 
+	 * @param copyFrom           Array of paths to be copied.
+	 * @param copyTo             Array of paths where files and folders will be
+	 *                           copied to.
+	 * @param updateLogFileDates
+	 */
+	protected void stageFixtures(String[] copyFrom, String[] copyTo, boolean updateLogFileDates) {
+		FixtureStager.stage(copyFrom, copyTo, updateLogFileDates, fixtureCopyMode, rebaseThreads);
+	}
+
+	/**
+	 * Snapshots the paths to archive and hands them to the ArchivePipeline, which
+	 * archives them in the background while the next test runs.
+	 * 
+	 * @param archivePathStr destination for the TestArchive Folder and within it.
+	 * @param pathsToArchive String[] of relevant paths that should be archived for
+	 *                       the test.
+	 * @throws IOException if the snapshot could not be taken
+	 */
+	private void queueArchiveTestData(String archivePathStr, String[] pathsToArchive) throws IOException {
+		for (String path : pathsToArchive) {
+			if (!new File(path).exists() && new File(path).getName().contains("sqlite")) {
+				System.out.println("ERROR! DATABASE PATH DOES NOT EXIST... " + path);
+			}
+		}
+		System.out.println("     Queueing archive of... " + archivePathStr);
+		ArchivePipeline.submit(archivePathStr, pathsToArchive, archiveThreads, maxPendingArchives,
+				snapshotPaths -> archiveTestData(archivePathStr, snapshotPaths));
+	}
+
 	/**
 	 * Stuffing the TestArchive folder with results and details from the test based
-	 * on pathsToArchive array
+	 * on pathsToArchive array. In the "dedup" archive mode the folder only gets a
+	 * manifest and the files go to the shared ArchiveStore.
 	 * 
 	 * @param archivePathStr destination for the TestArchive Folder and within it.
 	 * @param pathsToArchive String[] of relevant paths that should be archived for
@@ -379,23 +371,32 @@ public class TestBase {
 	 */
 	private void archiveTestData(String archivePathStr, String[] pathsToArchive)
 			throws IOException, InterruptedException {
+		if ("dedup".equals(archiveMode)) {
+			System.out.println("     Archiving to store... " + archiveStorePath);
+			ArchiveSummary summary = new ArchiveStore(new File(archiveStorePath).toPath()).archive(pathsToArchive,
+					new File(archivePathStr, ArchiveStore.MANIFEST_NAME).toPath(), rebaseThreads);
+			System.out.println("     " + summary);
+			summary.throwIfFailed();
+			System.out.println("     Done archiving to... " + archivePathStr);
+			return;
+		}
+		File archive = new File(archivePathStr);
 		for (String path : pathsToArchive) {
-			from = new File(path);
-			to = new File(archivePathStr);
-			if (from.exists()) {
-				System.out.println("     Archiving..." + from);
-				copyFoldersOrFiles(from, to, true);
-			} else if (from.getName().contains("sqlite")) {
-				System.out.println("ERROR! DATABASE PATH DOES NOT EXIST... " + from);
+			File source = new File(path);
+			if (source.exists()) {
+				System.out.println("     Archiving..." + source);
+				copyFoldersOrFiles(source, archive, true, FixtureCopier.Mode.COPY, rebaseThreads);
 			}
 		}
-		System.out.println("     Done archiving to... " + to);
+		System.out.println("     Done archiving to... " + archive);
 	}
 
 	/**
 	 * Allows Project to do it's thing with all the set up
 	 * 
-	 * @param waitTime
+	 * @param waitTime           hard timeout in minutes, the run usually ends
+	 *                           sooner once the CompletionDetector sees the
+	 *                           service go quiet
 	 * @param pathsToClean
 	 * @param copyFrom
 	 * @param copyTo
@@ -409,17 +410,45 @@ public class TestBase {
 			String archiveDest, String[] pathsToArchive, boolean updateLogFileDates)
 			throws IOException, InterruptedException {
 		System.out.println("     Beginning Project tasks ...");
-		Runtime rt = Runtime.getRuntime();
-		projectStop(rt);
+		projectStop();
 		CleanFolderPaths(pathsToClean);
 		copyToProjectPaths(copyFrom, copyTo, true, updateLogFileDates);
-		projectStart(rt);
-		TimeUnit.MINUTES.sleep(waitTime);
-		archiveTestData(archiveDest, pathsToArchive);
-		projectStop(rt);
+		projectStart();
+		new CompletionDetector(agentProgramCachePath + "/project.sqlite",
+				new String[] { agentProgramCachePath, projectClientLogPath }, quietSecondsProjectClient,
+				pollSecondsProjectClient, waitTime).awaitCompletion();
+		projectStop();
+		queueArchiveTestData(archiveDest, pathsToArchive);
+		scenarioRunCompleted = true;
 		System.out.println("     Ending Project tasks.");
 	}
 
+	/**
+	 * Checks whether this test can assert on the Project run of its scenario
+	 * leader instead of performing its own.
+	 * 
+	 * @return true if the leader's run completed and should be reused
+	 */
+	protected boolean reuseScenarioRun() {
+		if (scenarioLeader == null) {
+			return false;
+		}
+		if (!scenarioLeader.scenarioRunCompleted) {
+			System.out.println("     Scenario leader Test Case " + scenarioLeader.getTestCaseNumber()
+					+ " did not complete its Project run, running Project for this test case.");
+			return false;
+		}
+		System.out.println("     Reusing the Project run of Test Case " + scenarioLeader.getTestCaseNumber());
+		return true;
+	}
+
+	/**
+	 * @return true if this test is planned to reuse another test's Project run
+	 */
+	public boolean isScenarioFollower() {
+		return scenarioLeader != null;
+	}
+
 	public String getTestCaseNumber() {
 		return testCaseNumber;
 	}
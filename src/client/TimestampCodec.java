@@ -0,0 +1,222 @@
+package client;
+
+/**
+ * TimestampCodec helper object.
+ *
+ * <P>
+ * Reads and writes the two log timestamp formats directly in byte arrays as
+ * epoch seconds, treating the local date time as if it were UTC. Nothing is
+ * allocated per timestamp, so large logs can be rebased without creating
+ * Strings, LocalDateTimes or Durations for every line.
+ *
+ * <P>
+ * ISO: <code>yyyy-MM-ddTHH:mm:ss</code>, e.g. 2019-07-04T13:05:09<br>
+ * agentProgramV3: <code>EEE MMM ppd HH:mm:ss yyyy</code>, e.g. Thu Jul  4
+ * 13:05:09 2019
+ *
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class TimestampCodec {
+	public static final int ISO_LENGTH = 19, AGENT_LENGTH = 24;
+	public static final long INVALID = Long.MIN_VALUE;
+	private static final byte[] DAY_NAMES = "MonTueWedThuFriSatSun".getBytes();
+	private static final byte[] MONTH_NAMES = "JanFebMarAprMayJunJulAugSepOctNovDec".getBytes();
+	private static final long SECONDS_PER_DAY = 86400;
+
+	private TimestampCodec() {
+	}
+
+	/**
+	 * @param agent true for the agentProgramV3 format
+	 * @return length in bytes of a timestamp in that format
+	 */
+	public static int length(boolean agent) {
+		return agent ? AGENT_LENGTH : ISO_LENGTH;
+	}
+
+	/**
+	 * Parses a timestamp starting at offset.
+	 *
+	 * @param bytes  buffer holding the text
+	 * @param offset where the timestamp would start
+	 * @param limit  end of the valid bytes in the buffer
+	 * @param agent  true for the agentProgramV3 format
+	 * @return epoch seconds, or INVALID if there is no timestamp at offset
+	 */
+	public static long parse(byte[] bytes, int offset, int limit, boolean agent) {
+		return agent ? parseAgent(bytes, offset, limit) : parseIso(bytes, offset, limit);
+	}
+
+	/**
+	 * Writes a timestamp at offset, which must have room for length(agent) bytes.
+	 *
+	 * @return the offset just past the written timestamp
+	 */
+	public static int format(long epochSeconds, byte[] bytes, int offset, boolean agent) {
+		return agent ? formatAgent(epochSeconds, bytes, offset) : formatIso(epochSeconds, bytes, offset);
+	}
+
+	/**
+	 * Finds the next ISO timestamp at or after offset.
+	 *
+	 * @return its offset, or -1 if there is none before limit
+	 */
+	public static int findIso(byte[] bytes, int offset, int limit) {
+		for (int i = offset; i + ISO_LENGTH <= limit; i++) {
+			if (bytes[i + 4] == '-' && bytes[i + 10] == 'T' && parseIso(bytes, i, limit) != INVALID) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static long parseIso(byte[] b, int o, int limit) {
+		if (o + ISO_LENGTH > limit || b[o + 4] != '-' || b[o + 7] != '-' || b[o + 10] != 'T' || b[o + 13] != ':'
+				|| b[o + 16] != ':') {
+			return INVALID;
+		}
+		int year = digits(b, o, 4), month = digits(b, o + 5, 2), day = digits(b, o + 8, 2);
+		int hour = digits(b, o + 11, 2), minute = digits(b, o + 14, 2), second = digits(b, o + 17, 2);
+		return toEpochSeconds(year, month, day, hour, minute, second);
+	}
+
+	private static long parseAgent(byte[] b, int o, int limit) {
+		if (o + AGENT_LENGTH > limit || b[o + 3] != ' ' || b[o + 7] != ' ' || b[o + 10] != ' ' || b[o + 13] != ':'
+				|| b[o + 16] != ':' || b[o + 19] != ' ') {
+			return INVALID;
+		}
+		if (nameIndex(DAY_NAMES, b, o) < 0) {
+			return INVALID;
+		}
+		int month = nameIndex(MONTH_NAMES, b, o + 4) + 1;
+		int day = b[o + 8] == ' ' ? digits(b, o + 9, 1) : digits(b, o + 8, 2);
+		int hour = digits(b, o + 11, 2), minute = digits(b, o + 14, 2), second = digits(b, o + 17, 2);
+		int year = digits(b, o + 20, 4);
+		return toEpochSeconds(year, month, day, hour, minute, second);
+	}
+
+	private static int formatIso(long epochSeconds, byte[] b, int o) {
+		long days = Math.floorDiv(epochSeconds, SECONDS_PER_DAY);
+		int secondOfDay = (int) Math.floorMod(epochSeconds, SECONDS_PER_DAY);
+		long civil = civilFromDays(days);
+		writeDigits(b, o, (int) (civil >> 16), 4);
+		b[o + 4] = '-';
+		writeDigits(b, o + 5, (int) (civil >> 8) & 0xFF, 2);
+		b[o + 7] = '-';
+		writeDigits(b, o + 8, (int) civil & 0xFF, 2);
+		b[o + 10] = 'T';
+		writeTime(b, o + 11, secondOfDay);
+		return o + ISO_LENGTH;
+	}
+
+	private static int formatAgent(long epochSeconds, byte[] b, int o) {
+		long days = Math.floorDiv(epochSeconds, SECONDS_PER_DAY);
+		int secondOfDay = (int) Math.floorMod(epochSeconds, SECONDS_PER_DAY);
+		long civil = civilFromDays(days);
+		int dayOfWeek = (int) Math.floorMod(days + 3, 7L); // 1970-01-01 was a Thursday, index 3 from Monday
+		System.arraycopy(DAY_NAMES, dayOfWeek * 3, b, o, 3);
+		b[o + 3] = ' ';
+		System.arraycopy(MONTH_NAMES, (((int) (civil >> 8) & 0xFF) - 1) * 3, b, o + 4, 3);
+		b[o + 7] = ' ';
+		int day = (int) civil & 0xFF;
+		b[o + 8] = day < 10 ? (byte) ' ' : (byte) ('0' + day / 10);
+		b[o + 9] = (byte) ('0' + day % 10);
+		b[o + 10] = ' ';
+		writeTime(b, o + 11, secondOfDay);
+		b[o + 19] = ' ';
+		writeDigits(b, o + 20, (int) (civil >> 16), 4);
+		return o + AGENT_LENGTH;
+	}
+
+	private static void writeTime(byte[] b, int o, int secondOfDay) {
+		writeDigits(b, o, secondOfDay / 3600, 2);
+		b[o + 2] = ':';
+		writeDigits(b, o + 3, secondOfDay / 60 % 60, 2);
+		b[o + 5] = ':';
+		writeDigits(b, o + 6, secondOfDay % 60, 2);
+	}
+
+	/**
+	 * @return the epoch seconds of a date time, or INVALID if a field is out of
+	 *         range or failed to parse
+	 */
+	private static long toEpochSeconds(int year, int month, int day, int hour, int minute, int second) {
+		if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month) || hour < 0 || hour > 23
+				|| minute < 0 || minute > 59 || second < 0 || second > 59) {
+			return INVALID;
+		}
+		return daysFromCivil(year, month, day) * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second;
+	}
+
+	private static int daysInMonth(int year, int month) {
+		if (month == 2) {
+			return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+		}
+		return (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+	}
+
+	/**
+	 * Days since 1970-01-01 of a proleptic Gregorian date, after Howard Hinnant's
+	 * days_from_civil.
+	 */
+	private static long daysFromCivil(int year, int month, int day) {
+		year -= month <= 2 ? 1 : 0;
+		long era = Math.floorDiv(year, 400);
+		long yearOfEra = year - era * 400;
+		long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	/**
+	 * Inverse of daysFromCivil.
+	 *
+	 * @return year, month and day packed as year << 16 | month << 8 | day
+	 */
+	private static long civilFromDays(long days) {
+		days += 719468;
+		long era = Math.floorDiv(days, 146097);
+		long dayOfEra = days - era * 146097;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long monthPrime = (5 * dayOfYear + 2) / 153;
+		long day = dayOfYear - (153 * monthPrime + 2) / 5 + 1;
+		long month = monthPrime + (monthPrime < 10 ? 3 : -9);
+		long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+		return year << 16 | month << 8 | day;
+	}
+
+	/**
+	 * @return index of the three letter name at offset within names, or -1
+	 */
+	private static int nameIndex(byte[] names, byte[] b, int o) {
+		for (int i = 0; i < names.length; i += 3) {
+			if (names[i] == b[o] && names[i + 1] == b[o + 1] && names[i + 2] == b[o + 2]) {
+				return i / 3;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the value of count decimal digits, or -1 if one is not a digit
+	 */
+	private static int digits(byte[] b, int o, int count) {
+		int value = 0;
+		for (int i = o; i < o + count; i++) {
+			if (b[i] < '0' || b[i] > '9') {
+				return -1;
+			}
+			value = value * 10 + (b[i] - '0');
+		}
+		return value;
+	}
+
+	private static void writeDigits(byte[] b, int o, int value, int count) {
+		for (int i = o + count - 1; i >= o; i--) {
+			b[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package client;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * WindowsServiceController object.
+ * 
+ * <P>
+ * Controls the Project service through the Windows service control manager
+ * with sc.exe, reading the command output instead of firing and forgetting.
+ * 
+ * @author Alex Shim, Nick Kitching, Priyonto Saha
+ * @version 1.0
+ */
+public class WindowsServiceController implements ServiceController {
+	// sc.exe exit codes when the service is already in the requested state
+	private static final int ALREADY_RUNNING = 1056, NOT_ACTIVE = 1062;
+	private final String serviceName;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param serviceName name of the installed Windows service
+	 */
+	public WindowsServiceController(String serviceName) {
+		this.serviceName = serviceName;
+	}
+
+	@Override
+	public void start() throws IOException {
+		StringBuilder output = new StringBuilder();
+		int exitCode = runCommand(output, "sc", "start", serviceName);
+		if (exitCode != 0 && exitCode != ALREADY_RUNNING) {
+			throw new IOException("sc start " + serviceName + " failed with " + exitCode + ": " + output);
+		}
+	}
+
+	@Override
+	public void stop() throws IOException {
+		StringBuilder output = new StringBuilder();
+		int exitCode = runCommand(output, "sc", "stop", serviceName);
+		if (exitCode != 0 && exitCode != NOT_ACTIVE) {
+			throw new IOException("sc stop " + serviceName + " failed with " + exitCode + ": " + output);
+		}
+	}
+
+	/**
+	 * Parses the STATE line of sc query, e.g. "STATE : 4 RUNNING".
+	 */
+	@Override
+	public State status() throws IOException {
+		StringBuilder output = new StringBuilder();
+		runCommand(output, "sc", "query", serviceName);
+		for (String line : output.toString().split("\n")) {
+			if (line.trim().startsWith("STATE")) {
+				String[] parts = line.split(":", 2)[1].trim().split("\\s+");
+				switch (parts[0]) {
+				case "1":
+					return State.STOPPED;
+				case "2":
+					return State.START_PENDING;
+				case "3":
+					return State.STOP_PENDING;
+				case "4":
+					return State.RUNNING;
+				default:
+					return State.UNKNOWN;
+				}
+			}
+		}
+		return State.UNKNOWN;
+	}
+
+	/**
+	 * Runs a command to completion, collecting its output.
+	 * 
+	 * @param output  collects stdout and stderr of the command
+	 * @param command the command and its arguments
+	 * @return the exit code
+	 * @throws IOException
+	 */
+	private static int runCommand(StringBuilder output, String... command) throws IOException {
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				output.append(line).append('\n');
+			}
+		}
+		try {
+			return process.waitFor();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while running " + String.join(" ", command), e);
+		}
+	}
+}